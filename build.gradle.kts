@@ -8,6 +8,7 @@ plugins {
 	id("java")
     jacoco
     id("com.palantir.baseline") version "3.69.0"
+    id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 group = "li.selman"
@@ -21,15 +22,21 @@ repositories {
 dependencies {
     // Database Access
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
-    runtimeOnly("org.postgresql:postgresql")
+    implementation("org.postgresql:postgresql")
     implementation("org.liquibase:liquibase-core")
     implementation("org.springframework.boot:spring-boot-starter-validation")
 
+    // Caching
+    implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
     // Web
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-hateoas")
     implementation("org.springframework.boot:spring-boot-starter-data-rest")
     runtimeOnly("org.springframework.data:spring-data-rest-hal-explorer")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
 
     // Security
     implementation("org.springframework.boot:spring-boot-starter-security")
@@ -54,6 +61,9 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
     testImplementation("org.springframework.restdocs:spring-restdocs-mockmvc")
+
+    // Benchmarks
+    jmh("org.springframework:spring-test")
 }
 
 val snippetsDir by extra { file("build/generated-snippets") }
@@ -105,6 +115,16 @@ tasks.named<JavaCompile>("compileTestJava") {
     options.errorprone.isEnabled.set(false)
 }
 
+// Micro benchmarks live in src/jmh/java, run them with: ./gradlew jmh
+jmh {
+    jmhVersion = "1.29"
+    duplicateClassesStrategy = DuplicatesStrategy.EXCLUDE
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    options.errorprone.isEnabled.set(false)
+}
+
 tasks.withType<JavaCompile>().configureEach {
     options.errorprone.disable("BracesRequired", "MissingSummary", "EqualsGetClass", "OptionalOrElseMethodInvocation",
         "PreferSafeLoggableExceptions", "PreferSafeLoggingPreconditions", "Slf4jConstantLogMessage",
@@ -0,0 +1,115 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import li.selman.dershop.DerShopApplication;
+import li.selman.dershop.inventory.InventoryService;
+import li.selman.dershop.product.Product;
+import li.selman.dershop.product.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Load test of the checkout, reports the checkouts per second one node places.
+ * <p>
+ * Every benchmark thread plays a customer checking out one to three random products of a small, hot assortment
+ * again and again, i.e. the worst case of a campaign where all checkouts compete for the same stock rows. Run it with
+ * as many threads as the node has request threads ({@code -t}), the score is the number of completed checkouts per
+ * second over all threads. Checkouts rejected because of a full queue count as well, compare the
+ * {@code orders.checkouts} metric to tell them apart.
+ * <p>
+ * Needs the PostgreSQL database of {@code application.properties}. The products and orders created are deleted
+ * afterwards.
+ *
+ * @author Hasan Selman Kara
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+public class OrderCheckoutBenchmark {
+
+    private static final String LOGIN_PREFIX = "checkout-benchmark-";
+
+    @Param({"100", "10000"})
+    private int products;
+
+    private ConfigurableApplicationContext context;
+    private OrderPipeline pipeline;
+    private List<Product> assortment;
+
+    @Setup
+    public void before() {
+        context = new SpringApplicationBuilder(DerShopApplication.class)
+            .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN")
+            .run();
+        pipeline = context.getBean(OrderPipeline.class);
+
+        List<Product> created = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            created.add(new Product("Checkout benchmark " + i));
+        }
+        assortment = new ArrayList<>();
+        context.getBean(ProductRepository.class).saveAll(created).forEach(assortment::add);
+        InventoryService inventory = context.getBean(InventoryService.class);
+        assortment.forEach(product -> inventory.restock(product.getId(), Integer.MAX_VALUE));
+    }
+
+    @TearDown
+    public void after() {
+        context.getBean(JdbcTemplate.class).update("delete from customer_order where login like ?", LOGIN_PREFIX + "%");
+        context.getBean(ProductRepository.class).deleteAll(assortment);
+        context.close();
+    }
+
+    @Benchmark
+    public CheckoutResult checkout() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = 1 + random.nextInt(3);
+        Set<Long> productIds = new HashSet<>(count);
+        List<OrderLine> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long productId = assortment.get(random.nextInt(assortment.size())).getId();
+            if (productIds.add(productId)) {
+                lines.add(new OrderLine(productId, 1 + random.nextInt(2)));
+            }
+        }
+        return pipeline.submit(LOGIN_PREFIX + Thread.currentThread().getId(), lines).join();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.UriTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Compares the link rendering of one page of products through {@code WebMvcLinkBuilder} and a freshly parsed
+ * {@link UriTemplate} (the former implementation) with the precompiled {@link ProductLinks}.
+ * <p>
+ * Run with {@code ./gradlew jmh}, add {@code -prof gc} to the JMH arguments to compare the allocations.
+ *
+ * @author Hasan Selman Kara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductLinksBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private List<Product> products;
+    private ProductLinks productLinks;
+
+    @Setup
+    public void before() {
+        // The request attributes are thread bound, hence the state has to be scoped to the benchmark thread
+        RequestContextHolder.setRequestAttributes(
+            new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/products")));
+        products = LongStream.rangeClosed(1, pageSize)
+            .mapToObj(id -> new Product(id, "Product " + id))
+            .collect(Collectors.toList());
+        productLinks = new ProductLinks(new ProductProperties());
+    }
+
+    @TearDown
+    public void after() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<EntityModel<Product>> linkBuilder() {
+        return products.stream()
+            .map(product -> EntityModel.of(product,
+                linkTo(methodOn(ProductController.class).findById(product.getId(), null, null, null))
+                    .withSelfRel().expand(),
+                linkTo(ProductController.class).withRel("products"),
+                Link.of(UriTemplate.of("http://www-dershop-com.cloudinary.com/product-image/{id}")
+                    .expand(Map.of("id", product.getId().toString())).toString(), ProductResourceProcessor.IMAGE_REL)))
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<EntityModel<Product>> precompiled() {
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+        return products.stream()
+            .map(product -> EntityModel.of(product,
+                links.self(product.getId()),
+                links.products(),
+                productLinks.image(product.getId())))
+            .collect(Collectors.toList());
+    }
+}
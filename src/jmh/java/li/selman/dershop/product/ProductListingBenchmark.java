@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.concurrent.TimeUnit;
+import li.selman.dershop.DerShopApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Compares one page of the catalog listing through managed {@link Product} entities wrapped in {@code EntityModel}s
+ * with the {@link ProductSummary} projection path, end to end from the request to the serialized HAL document.
+ * <p>
+ * Needs the PostgreSQL database of {@code application.properties}, ideally filled with the {@code datagen} profile.
+ * The {@link ProductResponseCache} is disabled, every request renders its page. The sample time mode reports the p99
+ * latency, add {@code -prof gc} to the JMH arguments to compare the allocations per request
+ * ({@code gc.alloc.rate.norm}).
+ *
+ * @author Hasan Selman Kara
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductListingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void before() {
+        context = new SpringApplicationBuilder(DerShopApplication.class)
+            .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN",
+                "dershop.product.response-cache-size=0B")
+            .run();
+        // MockMvc without the security filter chain, the listing is the same for every user
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown
+    public void after() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] entities() throws Exception {
+        return mockMvc.perform(get("/api/products")
+                .param("size", String.valueOf(pageSize))
+                .header("Accept", "application/hal+json"))
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] summaries() throws Exception {
+        return mockMvc.perform(get("/api/products")
+                .param("view", ProductController.SUMMARY_VIEW)
+                .param("size", String.valueOf(pageSize))
+                .header("Accept", "application/hal+json"))
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import li.selman.dershop.DerShopApplication;
+import li.selman.dershop.app.ProfileConstants;
+import li.selman.dershop.app.security.AuthoritiesConstants;
+import li.selman.dershop.app.security.jwt.TokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Load test comparing the blocking product reads with the ones of the {@value ProfileConstants#ASYNC_READS} profile,
+ * reports the requests per second and the p99 latency.
+ * <p>
+ * Every benchmark thread is one client connection reading random pages of the catalog over HTTP, through the whole
+ * filter chain including the authentication. The number of connections is fixed by {@code @Threads} and exceeds the
+ * request threads of the server, i.e. the blocking mode saturates the request threads the way bursty traffic does.
+ * The response cache and the catalog snapshot are disabled, every request queries the database. Compare the two
+ * modes at the same {@code serverThreads}, the throughput mode gives the requests per second over all connections,
+ * the sample time mode the latency percentiles.
+ * <p>
+ * Needs the PostgreSQL database of {@code application.properties}, ideally filled with the {@code datagen} profile.
+ *
+ * @author Hasan Selman Kara
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(200)
+@Fork(1)
+public class ProductReadModeBenchmark {
+
+    @Param({"blocking", ProfileConstants.ASYNC_READS})
+    private String mode;
+
+    @Param("50")
+    private int serverThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI products;
+    private String authorization;
+    private long maxId;
+
+    @Setup
+    public void before() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DerShopApplication.class)
+            .properties("server.port=0", "spring.jpa.show-sql=false", "logging.level.root=WARN",
+                "server.tomcat.threads.max=" + serverThreads,
+                "dershop.product.response-cache-size=0B",
+                "dershop.product.snapshot-directory=");
+        if (mode.equals(ProfileConstants.ASYNC_READS)) {
+            builder.profiles(ProfileConstants.ASYNC_READS);
+        }
+        context = builder.run();
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        products = URI.create("http://localhost:" + port + ProductController.PATH);
+        String token = context.getBean(TokenProvider.class).createToken(new UsernamePasswordAuthenticationToken(
+            "read-benchmark", null, List.of(new SimpleGrantedAuthority(AuthoritiesConstants.USER))), false);
+        authorization = "Bearer " + token;
+        maxId = context.getBean(JdbcTemplate.class).queryForObject("select coalesce(max(id), 0) from product",
+            Long.class);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void after() {
+        context.close();
+    }
+
+    @Benchmark
+    public int readPage() throws IOException, InterruptedException {
+        String cursor = ProductCursor.after(ThreadLocalRandom.current().nextLong(maxId + 1)).encode();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(products + "?size=20&cursor=" + cursor))
+            .header("Accept", "application/hal+json")
+            .header("Authorization", authorization)
+            .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
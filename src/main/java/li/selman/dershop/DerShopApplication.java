@@ -16,6 +16,12 @@
 package li.selman.dershop;
 
 import li.selman.dershop.app.security.jwt.JwtProperties;
+import li.selman.dershop.cart.CartProperties;
+import li.selman.dershop.inventory.InventoryProperties;
+import li.selman.dershop.order.OrderProperties;
+import li.selman.dershop.product.ProductProperties;
+import li.selman.dershop.product.RecentlyViewedProperties;
+import li.selman.dershop.product.TrendingProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
@@ -23,7 +29,10 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 
 @SuppressWarnings("checkstyle:HideUtilityClassConstructor")
 @SpringBootApplication
-@EnableConfigurationProperties({ LiquibaseProperties.class, JwtProperties.class })
+@EnableConfigurationProperties({
+    LiquibaseProperties.class, JwtProperties.class, ProductProperties.class, InventoryProperties.class,
+    CartProperties.class, OrderProperties.class, TrendingProperties.class, RecentlyViewedProperties.class
+})
 public class DerShopApplication {
 
     public static void main(String[] args) {
@@ -26,6 +26,16 @@ public final class ProfileConstants {
 
     public static final String HEROKU = "HEROKU";
 
+    /**
+     * Loads a large synthetic data set on startup, see {@code DataGenerator}.
+     */
+    public static final String DATAGEN = "datagen";
+
+    /**
+     * Serves the product reads without blocking the request threads, see {@code AsyncProductReadController}.
+     */
+    public static final String ASYNC_READS = "async-reads";
+
     private ProfileConstants() {
         // NO-OP
     }
@@ -0,0 +1,32 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package li.selman.dershop.app.cache;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process caches.
+ * <p>
+ * The caches are backed by Caffeine and configured through the {@code spring.cache.*} properties. Spring Boot binds
+ * every cache known at startup to the Micrometer registry, i.e. hits, misses and evictions are exported to
+ * Prometheus as {@code cache_gets_total}, {@code cache_evictions_total} etc.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+}
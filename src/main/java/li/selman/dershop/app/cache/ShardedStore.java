@@ -0,0 +1,212 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Resident values, spread over shards which are locked independently.
+ * <p>
+ * A value is looked up and changed under the lock of its shard only, concurrent requests for keys of other shards
+ * never wait for one another. A value which is not resident is loaded outside of any lock, the loader is therefore
+ * only asked for keys which were never used or evicted. Changed keys are remembered per shard until they are taken
+ * to be written, several changes of a value in the meantime are written once. Values which were not accessed for a
+ * while are evicted once they are written.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values, changed in place
+ */
+public class ShardedStore<K, V> {
+
+    private final Shard<K, V>[] shards;
+    private final int mask;
+    private final Function<K, V> loader;
+    private final LongSupplier clock;
+
+    /**
+     * @param shards the number of shards, rounded up to a power of two
+     * @param loader loads the value of a key which is not resident
+     * @param clock  the current time in nanoseconds, to tell the idle values
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedStore(int shards, Function<K, V> loader, LongSupplier clock) {
+        int size = 1;
+        while (size < shards) {
+            size <<= 1;
+        }
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new Shard<>();
+        }
+        this.mask = size - 1;
+        this.loader = loader;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs an action on the value of a key, under the lock of its shard.
+     *
+     * @param key    the key
+     * @param action reads the value, changes are only written if made by {@link #change(Object, Function)}
+     * @param <R>    the type of the result
+     * @return the result of the action
+     */
+    public <R> R apply(K key, Function<V, R> action) {
+        Shard<K, V> shard = shardOf(key);
+        synchronized (shard) {
+            Entry<V> entry = shard.entries.get(key);
+            if (entry != null) {
+                entry.lastAccess = clock.getAsLong();
+                return action.apply(entry.value);
+            }
+        }
+
+        V loaded = loader.apply(key);
+        synchronized (shard) {
+            // Another request may have loaded the value in the meantime, its version wins
+            Entry<V> entry = shard.entries.computeIfAbsent(key, k -> new Entry<>(loaded));
+            entry.lastAccess = clock.getAsLong();
+            return action.apply(entry.value);
+        }
+    }
+
+    /**
+     * Changes the value of a key, under the lock of its shard.
+     *
+     * @param key      the key
+     * @param mutation changes the value in place, returns an empty result to reject the change, in which case it must
+     *                 not have changed anything
+     * @param <R>      the type of the result
+     * @return the result of the mutation, empty if the change was rejected
+     */
+    public <R> Optional<R> change(K key, Function<V, Optional<R>> mutation) {
+        return apply(key, value -> {
+            Optional<R> result = mutation.apply(value);
+            result.ifPresent(r -> shardOf(key).changed.add(key));
+            return result;
+        });
+    }
+
+    /**
+     * Takes the changed values which were not accessed for a while, to write them before they are evicted.
+     *
+     * @param idleNanos how long a value has to be idle to be taken, {@code 0} takes all changed values
+     * @param copy      copies a value to be written outside of the lock
+     * @param <C>       the type of the copies
+     * @return the copies by key
+     */
+    public <C> Map<K, C> takeChanged(long idleNanos, Function<V, C> copy) {
+        long now = clock.getAsLong();
+        Map<K, C> changed = new HashMap<>();
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                Iterator<K> keys = shard.changed.iterator();
+                while (keys.hasNext()) {
+                    K key = keys.next();
+                    Entry<V> entry = shard.entries.get(key);
+                    if (now - entry.lastAccess >= idleNanos) {
+                        changed.put(key, copy.apply(entry.value));
+                        keys.remove();
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Marks values as changed again, e.g. because writing them failed.
+     *
+     * @param keys the keys
+     */
+    public void markChanged(Collection<K> keys) {
+        for (K key : keys) {
+            Shard<K, V> shard = shardOf(key);
+            synchronized (shard) {
+                if (shard.entries.containsKey(key)) {
+                    shard.changed.add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the values which were not accessed for a while. Changed values stay until they are written.
+     *
+     * @param idleNanos how long a value has to be idle to be evicted
+     * @return the number of evicted values
+     */
+    public int evictIdle(long idleNanos) {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                Iterator<Map.Entry<K, Entry<V>>> entries = shard.entries.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<K, Entry<V>> entry = entries.next();
+                    if (now - entry.getValue().lastAccess >= idleNanos && !shard.changed.contains(entry.getKey())) {
+                        entries.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of resident values
+     */
+    public int size() {
+        int size = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                size += shard.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Shard<K, V> shardOf(K key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * The values of a shard, guarded by the monitor of the shard.
+     */
+    private static final class Shard<K, V> {
+        private final Map<K, Entry<V>> entries = new HashMap<>();
+        private final Set<K> changed = new HashSet<>();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private long lastAccess;
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into a single call.
+ * <p>
+ * The first caller of a key, the leader, runs the loader on its own thread. Callers arriving while the load is in
+ * flight, the followers, wait for the leader's result instead of loading the key once more. A failure of the loader
+ * is rethrown to the leader and every follower, i.e. all of them see the very same exception instance. Followers
+ * wait at most the given timeout and fail with a {@link SingleFlightTimeoutException} afterwards, the leader is not
+ * interrupted. Nothing is cached: once the load completed, the next caller of the key is a leader again.
+ * <p>
+ * The loads are counted in {@code single.flight.loads} tagged with the {@code role}, the coalescing ratio is
+ * {@code follower / (leader + follower)}. Followers which gave up are counted in {@code single.flight.timeouts}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter timeouts;
+
+    /**
+     * @param name     the name of the coalesced loads, used as {@code name} tag of the metrics
+     * @param timeout  how long followers wait for the leader
+     * @param registry the registry of the metrics
+     */
+    public SingleFlight(String name, Duration timeout, MeterRegistry registry) {
+        this.timeoutNanos = timeout.toNanos();
+        this.leaders = registry.counter("single.flight.loads", "name", name, "role", "leader");
+        this.followers = registry.counter("single.flight.loads", "name", name, "role", "follower");
+        this.timeouts = registry.counter("single.flight.timeouts", "name", name);
+        registry.gaugeMapSize("single.flight.in.flight", Tags.of("name", name), inFlight);
+    }
+
+    /**
+     * Loads the value of a key, or waits for the load already in flight.
+     *
+     * @param key    the key
+     * @param loader loads the value, only called if no load of the key is in flight
+     * @return the loaded value
+     * @throws SingleFlightTimeoutException if the leader did not complete in time
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running == null) {
+            leaders.increment();
+            return lead(key, call, loader);
+        }
+        followers.increment();
+        return follow(key, running);
+    }
+
+    private V lead(K key, CompletableFuture<V> call, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private V follow(K key, CompletableFuture<V> running) {
+        try {
+            return running.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new SingleFlightTimeoutException("Gave up waiting for the load of " + key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SingleFlightTimeoutException("Interrupted while waiting for the load of " + key, e);
+        } catch (ExecutionException e) {
+            // The leader only completes with unchecked exceptions
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.cache;
+
+/**
+ * Thrown to the followers of a {@link SingleFlight} which gave up waiting for the leader.
+ */
+public class SingleFlightTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SingleFlightTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
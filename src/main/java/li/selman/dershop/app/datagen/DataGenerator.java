@@ -0,0 +1,356 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.datagen;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import javax.sql.DataSource;
+import li.selman.dershop.app.ProfileConstants;
+import li.selman.dershop.app.security.AuthoritiesConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads a large, synthetic data set of products and users for performance work.
+ * <p>
+ * Runs on startup with the {@value ProfileConstants#DATAGEN} profile. The rows are generated on the fly and streamed
+ * into the tables with PostgreSQL's {@code COPY}, which loads millions of rows in seconds where Liquibase's
+ * {@code loadData} would issue one insert per row. Names, authorities and timestamps only depend on the seed and the
+ * position of the row, thus two runs with the same {@link DataGeneratorProperties} produce the same data set. A table
+ * which already holds at least the requested number of rows is left alone.
+ */
+@Component
+@Profile(ProfileConstants.DATAGEN)
+@EnableConfigurationProperties(DataGeneratorProperties.class)
+@Slf4j
+public class DataGenerator implements ApplicationRunner {
+
+    /** All generated timestamps lie in the year before this instant, independent of when the generator runs. */
+    private static final Instant REFERENCE_TIME = Instant.parse("2021-01-01T00:00:00Z");
+    private static final long ONE_YEAR_SECONDS = ChronoUnit.DAYS.getDuration().getSeconds() * 365;
+    private static final long PROGRESS_INTERVAL = 500_000;
+
+    /** Hash of the password "user". */
+    private static final String PASSWORD_HASH = "$2a$10$0dWQixdAaetSZJTSwQe7KuoQcE4ATr8bkYyvfykiS9i5vcHcLBDfK";
+    /** Increment of the {@code sequence_generator} used by the users. */
+    private static final int USER_SEQUENCE_INCREMENT = 50;
+
+    private static final ZipfPicker BRANDS = new ZipfPicker(
+        "", "", "", "DerShop", "M-Budget", "Naturaplan", "Prix Garantie", "Bio Suisse", "Coop", "Frey", "Lindt",
+        "Emmi", "Zweifel", "Hero", "Knorr", "Barilla", "Thomy", "Ovomaltine", "Ricola", "Kambly");
+    private static final ZipfPicker ADJECTIVES = new ZipfPicker(
+        "", "Organic", "Fresh", "Classic", "Light", "Swiss", "Crunchy", "Spicy", "Smoked", "Whole Grain", "Dark",
+        "Sweet", "Wild", "Crème", "Extra Virgin", "Gluten-free", "Roasted", "Frozen", "Premium", "Mini", "Vegan");
+    private static final ZipfPicker NOUNS = new ZipfPicker(
+        "Milk", "Bread", "Apple", "Banana", "Cheese", "Chocolate", "Coffee", "Pasta", "Yoghurt", "Butter", "Eggs",
+        "Tomatoes", "Potatoes", "Rice", "Orange Juice", "Chips", "Muesli", "Water", "Tea", "Ham", "Salmon", "Pizza",
+        "Olive Oil", "Honey", "Jam", "Cookies", "Salad", "Carrots", "Onions", "Beer", "Wine", "Croissant", "Gruyère",
+        "Raclette", "Fondue", "Rösti", "Birchermüesli", "Zopf", "Basler Läckerli", "Cervelat");
+    private static final ZipfPicker SIZES = new ZipfPicker(
+        "", "", "500 g", "1 kg", "250 g", "1 l", "0.5 l", "6 x 1.5 l", "100 g", "2 kg", "Family Pack", "Duo");
+
+    private static final ZipfPicker FIRST_NAMES = new ZipfPicker(
+        "Daniel", "Maria", "Peter", "Anna", "Thomas", "Sandra", "Martin", "Laura", "Andreas", "Sarah", "Marco",
+        "Nicole", "Christian", "Julia", "Michael", "Lea", "Stefan", "Emma", "Luca", "Mia", "Hasan", "Elif",
+        "Noah", "Sofia", "David", "Lina", "Jonas", "Chiara", "Samuel", "Alina");
+    private static final ZipfPicker LAST_NAMES = new ZipfPicker(
+        "Mueller", "Meier", "Schmid", "Keller", "Weber", "Huber", "Schneider", "Meyer", "Steiner", "Fischer",
+        "Gerber", "Brunner", "Baumann", "Frei", "Zimmermann", "Moser", "Widmer", "Wyss", "Graf", "Roth", "Kara",
+        "Rossi", "Bianchi", "Favre", "Bonvin", "Berisha", "Silva", "Yilmaz", "Nguyen", "Kovac");
+    private static final ZipfPicker LANGUAGES = new ZipfPicker("de", "en", "fr", "it");
+
+    /** The category of every noun. */
+    private static final Map<String, String> CATEGORIES = byValue(Map.of(
+        "Dairy", List.of("Milk", "Cheese", "Yoghurt", "Butter", "Eggs", "Gruyère", "Raclette", "Fondue"),
+        "Bakery", List.of("Bread", "Croissant", "Zopf", "Cookies", "Basler Läckerli"),
+        "Fruit & Vegetables", List.of("Apple", "Banana", "Tomatoes", "Potatoes", "Salad", "Carrots", "Onions"),
+        "Beverages", List.of("Coffee", "Orange Juice", "Water", "Tea", "Beer", "Wine"),
+        "Pantry", List.of("Pasta", "Rice", "Muesli", "Olive Oil", "Honey", "Jam", "Birchermüesli", "Rösti"),
+        "Snacks", List.of("Chocolate", "Chips"),
+        "Meat & Fish", List.of("Ham", "Salmon", "Cervelat"),
+        "Frozen", List.of("Pizza")));
+
+    private final DataSource dataSource;
+    private final DataGeneratorProperties properties;
+
+    DataGenerator(DataSource dataSource, DataGeneratorProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        SplittableRandom root = new SplittableRandom(properties.getSeed());
+        // independent streams, so changing the number of users does not change the products
+        SplittableRandom productRandom = root.split();
+        SplittableRandom userRandom = root.split();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            if (count(connection, "product") < properties.getProducts()) {
+                generateProducts(connection, copyManager, productRandom);
+            } else {
+                log.info("Skipping the products, there are already {} or more", properties.getProducts());
+            }
+            if (count(connection, "dershop_user") < properties.getUsers()) {
+                generateUsers(connection, copyManager, userRandom);
+            } else {
+                log.info("Skipping the users, there are already {} or more", properties.getUsers());
+            }
+        }
+    }
+
+    private void generateProducts(Connection connection, CopyManager copyManager, SplittableRandom random)
+        throws SQLException {
+        long start = System.nanoTime();
+        long firstId = queryLong(connection,
+            "select greatest(coalesce(max(id), 0), (select last_value from product_sequence)) + 1 from product");
+        long count = properties.getProducts();
+
+        try (CopyRows rows = new CopyRows(copyManager.copyIn(
+            "COPY product (id, name, version, last_modified_date, price, category, brand) FROM STDIN"))) {
+            for (long i = 0; i < count; i++) {
+                writeProduct(rows, firstId + i, random);
+                logProgress("products", i + 1);
+            }
+        }
+        // pooled-lo, the next call has to return the first unused id
+        execute(connection, "select setval('product_sequence', " + (firstId + count) + ", false)");
+        execute(connection, "analyze product");
+        connection.commit();
+        log.info("Generated {} products in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void generateUsers(Connection connection, CopyManager copyManager, SplittableRandom random)
+        throws SQLException {
+        long start = System.nanoTime();
+        long firstId = queryLong(connection,
+            "select greatest(coalesce(max(id), 0), (select last_value from sequence_generator)) + 1 from dershop_user");
+        long count = properties.getUsers();
+
+        // the authorities are drawn while writing the users and remembered, to be copied in a second pass
+        byte[] authorities = new byte[Math.toIntExact(count)];
+        try (CopyRows rows = new CopyRows(copyManager.copyIn("COPY dershop_user (id, login, password_hash, "
+            + "first_name, last_name, email, activated, lang_key, created_by, created_date, last_modified_by, "
+            + "last_modified_date) FROM STDIN"))) {
+            for (int i = 0; i < count; i++) {
+                writeUser(rows, firstId + i, random);
+                authorities[i] = drawAuthorities(random);
+                logProgress("users", i + 1L);
+            }
+        }
+        try (CopyRows rows = new CopyRows(copyManager.copyIn(
+            "COPY dershop_user_authority (user_id, authority_name) FROM STDIN"))) {
+            for (int i = 0; i < count; i++) {
+                writeAuthorities(rows, firstId + i, authorities[i]);
+            }
+        }
+        // pooled, the sequence value is the highest id of the block handed out last
+        execute(connection, "select setval('sequence_generator', "
+            + (firstId + count - 1 + USER_SEQUENCE_INCREMENT) + ", true)");
+        execute(connection, "analyze dershop_user");
+        execute(connection, "analyze dershop_user_authority");
+        connection.commit();
+        log.info("Generated {} users in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void writeProduct(CopyRows rows, long id, SplittableRandom random) {
+        String brand = BRANDS.pick(random);
+        String adjective = ADJECTIVES.pick(random);
+        String noun = NOUNS.pick(random);
+        StringBuilder name = new StringBuilder(48);
+        appendWord(name, brand);
+        appendWord(name, adjective);
+        appendWord(name, noun);
+        appendWord(name, SIZES.pick(random));
+        rows.add(id)
+            .add(name.toString())
+            .add(0)
+            .add(timestamp(random))
+            .add(price(random))
+            .add(CATEGORIES.get(noun))
+            .addOrNull(brand.isEmpty() ? null : brand)
+            .endRow();
+    }
+
+    /** Between 0.50 and 50.00, most products are cheap. */
+    private static String price(SplittableRandom random) {
+        double draw = random.nextDouble();
+        return BigDecimal.valueOf(50 + (long) (draw * draw * draw * 4950), 2).toPlainString();
+    }
+
+    private static void appendWord(StringBuilder name, String word) {
+        if (!word.isEmpty()) {
+            if (name.length() > 0) {
+                name.append(' ');
+            }
+            name.append(word);
+        }
+    }
+
+    private static void writeUser(CopyRows rows, long id, SplittableRandom random) {
+        String firstName = FIRST_NAMES.pick(random);
+        String lastName = LAST_NAMES.pick(random);
+        // the id keeps the login unique
+        String login = (firstName + "." + lastName).toLowerCase(Locale.ROOT) + "." + id;
+        String created = timestamp(random);
+        rows.add(id)
+            .add(login)
+            .add(PASSWORD_HASH)
+            .add(firstName)
+            .add(lastName)
+            .add(login + "@example.com")
+            .add(random.nextInt(100) < 97 ? "true" : "false")
+            .add(LANGUAGES.pick(random))
+            .add("system")
+            .add(created)
+            .add("system")
+            .add(created)
+            .endRow();
+    }
+
+    /** One in ten thousand users is an admin, one in a thousand a product information manager. */
+    private static byte drawAuthorities(SplittableRandom random) {
+        int draw = random.nextInt(10_000);
+        if (draw == 0) {
+            return 2;
+        }
+        return draw <= 10 ? (byte) 1 : 0;
+    }
+
+    private static void writeAuthorities(CopyRows rows, long userId, byte authorities) {
+        if (authorities == 1) {
+            rows.add(userId).add(AuthoritiesConstants.PRODUCT_INFORMATION_MANAGER).endRow();
+            return;
+        }
+        rows.add(userId).add(AuthoritiesConstants.USER).endRow();
+        if (authorities == 2) {
+            rows.add(userId).add(AuthoritiesConstants.ADMIN).endRow();
+        }
+    }
+
+    private static Map<String, String> byValue(Map<String, List<String>> valuesByKey) {
+        Map<String, String> keysByValue = new HashMap<>();
+        valuesByKey.forEach((key, values) -> values.forEach(value -> keysByValue.put(value, key)));
+        return keysByValue;
+    }
+
+    private static String timestamp(SplittableRandom random) {
+        return REFERENCE_TIME.minusSeconds(random.nextLong(ONE_YEAR_SECONDS)).toString();
+    }
+
+    private static void logProgress(String what, long written) {
+        if (written % PROGRESS_INTERVAL == 0) {
+            log.info("Generated {} {}", written, what);
+        }
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        return queryLong(connection, "select count(*) from " + table);
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Writes rows in the tab separated text format of {@code COPY}, buffered into chunks. The generated values never
+     * contain tabs, new lines or backslashes, hence nothing is escaped.
+     */
+    private static final class CopyRows implements AutoCloseable {
+
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE + 1024);
+        private boolean firstColumn = true;
+
+        CopyRows(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        CopyRows add(String value) {
+            if (!firstColumn) {
+                buffer.append('\t');
+            }
+            buffer.append(value);
+            firstColumn = false;
+            return this;
+        }
+
+        CopyRows add(long value) {
+            return add(Long.toString(value));
+        }
+
+        CopyRows addOrNull(String value) {
+            return add(value == null ? "\\N" : value);
+        }
+
+        void endRow() {
+            buffer.append('\n');
+            firstColumn = true;
+            if (buffer.length() >= CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        private void flushChunk() {
+            byte[] chunk = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.setLength(0);
+            try {
+                copyIn.writeToCopy(chunk, 0, chunk.length);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not write to COPY", e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (copyIn.isActive()) {
+                flushChunk();
+                copyIn.endCopy();
+            }
+        }
+    }
+}
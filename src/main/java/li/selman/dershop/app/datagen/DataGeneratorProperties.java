@@ -0,0 +1,69 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.datagen;
+
+import javax.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the synthetic data set loaded by the {@link DataGenerator}.
+ */
+@Validated
+@ConfigurationProperties(prefix = "dershop.datagen")
+public class DataGeneratorProperties {
+
+    /**
+     * Number of products to generate.
+     */
+    @Min(0)
+    private long products = 1_000_000;
+
+    /**
+     * Number of users to generate.
+     */
+    @Min(0)
+    private long users = 100_000;
+
+    /**
+     * Seed of the random generators, the same seed and counts produce the same data set.
+     */
+    private long seed = 42;
+
+    public long getProducts() {
+        return products;
+    }
+
+    public void setProducts(long products) {
+        this.products = products;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public void setUsers(long users) {
+        this.users = users;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
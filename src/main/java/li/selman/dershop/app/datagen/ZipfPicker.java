@@ -0,0 +1,56 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks values following a Zipf distribution, i.e. the first value is the most common, the second half as common and
+ * so on. Real name and product vocabularies look like that.
+ */
+final class ZipfPicker {
+
+    private final String[] values;
+    private final double[] cumulative;
+
+    ZipfPicker(String... values) {
+        this.values = values.clone();
+        this.cumulative = new double[values.length];
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < values.length; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    String pick(SplittableRandom random) {
+        double p = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < p) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return values[low];
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.persistence;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Row count estimates from the PostgreSQL statistics, for listings where an exact {@code count(*)} is too expensive.
+ * <p>
+ * The estimate is {@code pg_class.reltuples}, maintained by {@code VACUUM}, {@code ANALYZE} and autovacuum, i.e. it
+ * lags behind the actual count. It is cached for {@code dershop.table-statistics.ttl}.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+public class TableStatistics {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<String, Long> estimates;
+
+    TableStatistics(JdbcTemplate jdbcTemplate, @Value("${dershop.table-statistics.ttl:PT1M}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.estimates = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .build(this::queryEstimate);
+    }
+
+    /**
+     * Estimates the number of rows of a table.
+     *
+     * @param table the name of the table
+     * @return the estimated number of rows, {@code 0} if the table has never been analyzed
+     */
+    public long estimateRowCount(String table) {
+        return estimates.get(table);
+    }
+
+    private Long queryEstimate(String table) {
+        // reltuples is -1 for a table which has never been vacuumed or analyzed
+        Long estimate = jdbcTemplate.queryForObject(
+            "select greatest(reltuples, 0)::bigint from pg_class where oid = to_regclass(?)", Long.class, table);
+        return estimate == null ? 0L : estimate;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.persistence;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Which total a client wants next to a page of a listing, listings are served without {@code count(*)} by default.
+ *
+ * @author Hasan Selman Kara
+ */
+public enum TotalCount {
+
+    /** No total, the client follows the {@code next} links until there are none. */
+    NONE,
+
+    /** Estimate from the table statistics, in the {@value #APPROXIMATE_HEADER} header. */
+    APPROXIMATE,
+
+    /** Exact {@code count(*)}, in the {@value #EXACT_HEADER} header. */
+    EXACT;
+
+    public static final String EXACT_HEADER = "X-Total-Count";
+    public static final String APPROXIMATE_HEADER = "X-Total-Count-Estimate";
+
+    /**
+     * Parses the value of the {@code total} request parameter.
+     *
+     * @param value one of {@code none}, {@code approximate} or {@code exact}, ignoring the case
+     * @return the total, empty if the value is unknown
+     */
+    public static Optional<TotalCount> parse(String value) {
+        try {
+            return Optional.of(valueOf(value.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Computes the total, if any, and renders it as header.
+     *
+     * @param exact       runs the {@code count(*)}
+     * @param approximate estimates the count
+     * @return the headers carrying the total, empty for {@link #NONE}
+     */
+    public HttpHeaders headers(LongSupplier exact, LongSupplier approximate) {
+        HttpHeaders headers = new HttpHeaders();
+        if (this == EXACT) {
+            headers.set(EXACT_HEADER, Long.toString(exact.getAsLong()));
+        } else if (this == APPROXIMATE) {
+            headers.set(APPROXIMATE_HEADER, Long.toString(approximate.getAsLong()));
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.HalConfiguration;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Serves the REST resources as CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}) next
+ * to JSON, picked through the {@code Accept} header.
+ * <p>
+ * Spring MVC registers plain CBOR and Smile converters on its own as soon as the data formats are on the classpath,
+ * but these know nothing about HAL and would render the links as a {@code links} array. They are replaced in place
+ * by converters whose mapper carries the same HAL module and relation naming as the JSON one, i.e. the binary
+ * documents have the very same {@code _links} and {@code _embedded} structure. The position in the converter list
+ * is kept, hence JSON stays the default for clients accepting anything.
+ */
+@Configuration
+public class BinaryFormatConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilders;
+    private final Jackson2HalModule.HalHandlerInstantiator halInstantiator;
+
+    BinaryFormatConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilders,
+                              LinkRelationProvider relProvider,
+                              ObjectProvider<CurieProvider> curieProvider,
+                              ObjectProvider<HalConfiguration> halConfiguration,
+                              MessageResolver messageResolver) {
+        this.mapperBuilders = mapperBuilders;
+        this.halInstantiator = new Jackson2HalModule.HalHandlerInstantiator(relProvider,
+            curieProvider.getIfAvailable(() -> CurieProvider.NONE), messageResolver,
+            halConfiguration.getIfAvailable(HalConfiguration::new));
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        replaceOrAdd(converters, MappingJackson2CborHttpMessageConverter.class,
+            new MappingJackson2CborHttpMessageConverter(halMapper(new CBORFactory())));
+        replaceOrAdd(converters, MappingJackson2SmileHttpMessageConverter.class,
+            new MappingJackson2SmileHttpMessageConverter(halMapper(new SmileFactory())));
+    }
+
+    private ObjectMapper halMapper(JsonFactory factory) {
+        // The builder bean is a prototype, every call hands out a fresh one carrying the spring.jackson.* settings
+        ObjectMapper mapper = mapperBuilders.getIfAvailable(Jackson2ObjectMapperBuilder::new).factory(factory).build();
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(halInstantiator);
+        return mapper;
+    }
+
+    private static void replaceOrAdd(List<HttpMessageConverter<?>> converters,
+                                     Class<?> type,
+                                     HttpMessageConverter<?> replacement) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (type.isInstance(converters.get(i))) {
+                converters.set(i, replacement);
+                return;
+            }
+        }
+        converters.add(replacement);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import li.selman.dershop.app.cache.SingleFlightTimeoutException;
+import li.selman.dershop.app.security.SecurityUtils;
+import li.selman.dershop.product.ProductLookup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The cart of the authenticated user.
+ *
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/cart")
+public class CartController {
+
+    private final CartService cartService;
+    private final ProductLookup productLookup;
+
+    CartController(CartService cartService, ProductLookup productLookup) {
+        this.cartService = cartService;
+        this.productLookup = productLookup;
+    }
+
+    @GetMapping
+    ResponseEntity<CartView> find() {
+        return forCurrentUser(login -> ResponseEntity.ok(cartService.find(login)));
+    }
+
+    /**
+     * @param productId the id of the product
+     * @param quantity  the quantity to add
+     * @return the cart, {@code 400 Bad Request} if the cart would become too large
+     */
+    @PostMapping("items/{productId}")
+    ResponseEntity<CartView> add(@PathVariable("productId") long productId,
+                                 @RequestParam(name = "quantity", defaultValue = "1") int quantity) {
+        if (quantity <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return forCurrentUser(login -> ifProductExists(productId,
+            () -> cartService.add(login, productId, quantity)));
+    }
+
+    /**
+     * @param productId the id of the product
+     * @param quantity  the new quantity, {@code 0} removes the product
+     * @return the cart, {@code 400 Bad Request} if the cart would become too large
+     */
+    @PutMapping("items/{productId}")
+    ResponseEntity<CartView> set(@PathVariable("productId") long productId,
+                                 @RequestParam("quantity") int quantity) {
+        if (quantity < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return forCurrentUser(login -> ifProductExists(productId,
+            () -> cartService.set(login, productId, quantity)));
+    }
+
+    @DeleteMapping("items/{productId}")
+    ResponseEntity<CartView> remove(@PathVariable("productId") long productId) {
+        return forCurrentUser(login -> ResponseEntity.ok(cartService.remove(login, productId)));
+    }
+
+    @DeleteMapping
+    ResponseEntity<CartView> clear() {
+        return forCurrentUser(login -> ResponseEntity.ok(cartService.clear(login)));
+    }
+
+    /**
+     * Runs the action with the login of the current user, a cart or product which could not be loaded in time is
+     * answered with {@code 503 Service Unavailable}.
+     */
+    private static ResponseEntity<CartView> forCurrentUser(Function<String, ResponseEntity<CartView>> action) {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (login.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            return action.apply(login.get());
+        } catch (SingleFlightTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+    }
+
+    private ResponseEntity<CartView> ifProductExists(long productId, Supplier<Optional<CartView>> change) {
+        if (productLookup.findById(productId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return change.get()
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.badRequest().build());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the shopping carts.
+ *
+ * @author Hasan Selman Kara
+ */
+@ConfigurationProperties(prefix = "dershop.cart")
+public class CartProperties {
+
+    /**
+     * Number of independently locked shards of the resident carts.
+     */
+    private int shards = 64;
+
+    /**
+     * Maximum number of distinct products per cart.
+     */
+    private int maxItems = 100;
+
+    /**
+     * Maximum quantity of a single product in a cart.
+     */
+    private int maxQuantity = 99;
+
+    /**
+     * How often the changed carts are written to the database.
+     */
+    private Duration flushInterval = Duration.ofSeconds(2);
+
+    /**
+     * How long a cart stays resident after its last access.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * How long a request waits for the load of the same cart by a concurrent request before it gives up.
+     */
+    private Duration loadTimeout = Duration.ofSeconds(2);
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public int getMaxQuantity() {
+        return maxQuantity;
+    }
+
+    public void setMaxQuantity(int maxQuantity) {
+        this.maxQuantity = maxQuantity;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the {@code cart_item} table.
+ *
+ * @author Hasan Selman Kara
+ */
+@Repository
+public class CartRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    CartRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param login the login of the owner
+     * @return the quantities by product id in the order the products were added, empty if there is no cart
+     */
+    Map<Long, Integer> findItems(String login) {
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        jdbcTemplate.query("select product_id, quantity from cart_item where login = ? order by position",
+            row -> {
+                items.put(row.getLong("product_id"), row.getInt("quantity"));
+            }, login);
+        return items;
+    }
+
+    /**
+     * Replaces the stored carts with the given ones, with one batch of deletes and one batch of inserts.
+     * <p>
+     * Items of products deleted in the meantime are skipped. Has to run inside a transaction.
+     *
+     * @param carts the quantities by product id, by login
+     */
+    void saveAll(Map<String, Map<Long, Integer>> carts) {
+        List<Object[]> deletes = new ArrayList<>(carts.size());
+        List<Object[]> inserts = new ArrayList<>();
+        // Concurrent flushes lock the rows in the same order, hence they cannot deadlock
+        new TreeMap<>(carts).forEach((login, items) -> {
+            deletes.add(new Object[] {login});
+            int position = 0;
+            for (Map.Entry<Long, Integer> item : items.entrySet()) {
+                inserts.add(new Object[] {login, item.getKey(), item.getValue(), position++, item.getKey()});
+            }
+        });
+        jdbcTemplate.batchUpdate("delete from cart_item where login = ?", deletes);
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into cart_item (login, product_id, quantity, position)"
+                + " select ?, ?, ?, ? where exists (select 1 from product where id = ?)", inserts);
+        }
+    }
+}
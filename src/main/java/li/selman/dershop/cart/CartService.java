@@ -0,0 +1,193 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.PreDestroy;
+import li.selman.dershop.app.cache.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The shopping carts, kept in memory and written to the database behind the requests.
+ * <p>
+ * Reading and changing a resident cart never touches the database. The carts changed since the last flush are
+ * written every {@code flush-interval} in one transaction, a cart changed several times in between is written once.
+ * Carts idle for {@code idle-timeout} are evicted after they have been written and loaded again on their next use,
+ * concurrent loads of the same cart share one query.
+ * <p>
+ * The requests of a user are expected to reach the same instance, e.g. through sticky sessions at the load balancer.
+ * If the instance dies, the changes since the last flush are lost.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class CartService {
+
+    private final CartRepository cartRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final CartProperties properties;
+    private final CartStore store;
+
+    CartService(CartRepository cartRepo, TransactionTemplate transactionTemplate, CartProperties properties,
+                MeterRegistry meterRegistry) {
+        this.cartRepo = cartRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        SingleFlight<String, Map<Long, Integer>> loads =
+            new SingleFlight<>("carts", properties.getLoadTimeout(), meterRegistry);
+        this.store = new CartStore(properties.getShards(),
+            login -> loads.load(login, () -> cartRepo.findItems(login)), System::nanoTime);
+        meterRegistry.gauge("carts.resident", store, CartStore::size);
+    }
+
+    /**
+     * @param login the login of the owner
+     * @return the cart, empty if the user has none
+     */
+    public CartView find(String login) {
+        return store.read(login);
+    }
+
+    /**
+     * Adds a product to the cart, or increases its quantity if it is already in the cart.
+     *
+     * @param login     the login of the owner
+     * @param productId the id of the product
+     * @param quantity  the quantity to add, positive
+     * @return the changed cart, empty if the cart would exceed {@code max-items} or {@code max-quantity}
+     */
+    public Optional<CartView> add(String login, long productId, int quantity) {
+        return store.update(login, items -> {
+            Integer current = items.get(productId);
+            if (current == null && items.size() >= properties.getMaxItems()) {
+                return false;
+            }
+            long updated = (current == null ? 0L : current) + quantity;
+            if (updated > properties.getMaxQuantity()) {
+                return false;
+            }
+            items.put(productId, (int) updated);
+            return true;
+        });
+    }
+
+    /**
+     * Sets the quantity of a product in the cart.
+     *
+     * @param login     the login of the owner
+     * @param productId the id of the product
+     * @param quantity  the new quantity, {@code 0} removes the product
+     * @return the changed cart, empty if the cart would exceed {@code max-items} or {@code max-quantity}
+     */
+    public Optional<CartView> set(String login, long productId, int quantity) {
+        if (quantity == 0) {
+            return Optional.of(remove(login, productId));
+        }
+        return store.update(login, items -> {
+            if (quantity > properties.getMaxQuantity()
+                || !items.containsKey(productId) && items.size() >= properties.getMaxItems()) {
+                return false;
+            }
+            items.put(productId, quantity);
+            return true;
+        });
+    }
+
+    /**
+     * @param login     the login of the owner
+     * @param productId the id of the product to remove
+     * @return the changed cart
+     */
+    public CartView remove(String login, long productId) {
+        return store.update(login, items -> {
+            items.remove(productId);
+            return true;
+        }).orElseThrow();
+    }
+
+    /**
+     * @param login the login of the owner
+     * @return the empty cart
+     */
+    public CartView clear(String login) {
+        return store.update(login, items -> {
+            items.clear();
+            return true;
+        }).orElseThrow();
+    }
+
+    /**
+     * Takes quantities out of the cart, e.g. the ones just ordered. Products whose quantity drops to zero are removed,
+     * products added in the meantime are kept.
+     *
+     * @param login      the login of the owner
+     * @param quantities the quantities to take out by product id
+     * @return the changed cart
+     */
+    public CartView subtract(String login, Map<Long, Integer> quantities) {
+        return store.update(login, items -> {
+            quantities.forEach((productId, quantity) ->
+                items.computeIfPresent(productId, (id, current) -> current > quantity ? current - quantity : null));
+            return true;
+        }).orElseThrow();
+    }
+
+    /**
+     * Writes the changed carts and evicts the idle ones.
+     */
+    @Scheduled(
+        initialDelayString = "${dershop.cart.flush-interval:PT2S}",
+        fixedDelayString = "${dershop.cart.flush-interval:PT2S}")
+    public void flush() {
+        if (writeChanged()) {
+            int evicted = store.evictIdle(properties.getIdleTimeout().toNanos());
+            if (evicted > 0) {
+                log.debug("Evicted {} idle carts", evicted);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeChanged();
+    }
+
+    /**
+     * @return {@code false} if the carts could not be written, they are written with the next flush then
+     */
+    private boolean writeChanged() {
+        Map<String, Map<Long, Integer>> changed = store.takeChanged();
+        if (changed.isEmpty()) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> cartRepo.saveAll(changed));
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            store.markChanged(changed.keySet());
+            log.warn("Could not write {} carts, retrying with the next flush", changed.size(), e);
+            return false;
+        }
+    }
+}
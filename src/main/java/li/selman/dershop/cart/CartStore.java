@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import li.selman.dershop.app.cache.ShardedStore;
+
+/**
+ * The resident carts, the quantities by product id by login of the owner.
+ *
+ * @author Hasan Selman Kara
+ */
+final class CartStore extends ShardedStore<String, Map<Long, Integer>> {
+
+    /**
+     * @param shards the number of shards, rounded up to a power of two
+     * @param loader loads the quantities by product id of a cart which is not resident
+     * @param clock  the current time in nanoseconds, to tell the idle carts
+     */
+    CartStore(int shards, Function<String, Map<Long, Integer>> loader, LongSupplier clock) {
+        super(shards, login -> new LinkedHashMap<>(loader.apply(login)), clock);
+    }
+
+    /**
+     * @param login the login of the owner
+     * @return a snapshot of the cart
+     */
+    CartView read(String login) {
+        return apply(login, CartView::of);
+    }
+
+    /**
+     * Changes a cart.
+     *
+     * @param login    the login of the owner
+     * @param mutation changes the quantities by product id in place, returns {@code false} to reject the change, in
+     *                 which case it must not have changed anything
+     * @return a snapshot of the changed cart, empty if the change was rejected
+     */
+    Optional<CartView> update(String login, Predicate<Map<Long, Integer>> mutation) {
+        return change(login, items -> mutation.test(items) ? Optional.of(CartView.of(items)) : Optional.empty());
+    }
+
+    /**
+     * Takes the carts changed since the last call.
+     *
+     * @return copies of the quantities by product id, by login
+     */
+    Map<String, Map<Long, Integer>> takeChanged() {
+        return takeChanged(0, LinkedHashMap::new);
+    }
+}
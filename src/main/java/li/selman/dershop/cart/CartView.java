@@ -0,0 +1,60 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a cart.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class CartView {
+
+    private final List<CartItem> items;
+
+    private CartView(List<CartItem> items) {
+        this.items = items;
+    }
+
+    /**
+     * @param quantities the quantities by product id, in the order the products were added
+     * @return a copy of the cart
+     */
+    static CartView of(Map<Long, Integer> quantities) {
+        List<CartItem> items = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> items.add(new CartItem(productId, quantity)));
+        return new CartView(Collections.unmodifiableList(items));
+    }
+
+    /**
+     * @return the items in the order the products were added
+     */
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public int getTotalQuantity() {
+        int total = 0;
+        for (CartItem item : items) {
+            total += item.getQuantity();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import li.selman.dershop.app.security.AuthoritiesConstants;
+import li.selman.dershop.product.ProductRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+    private final ProductRepository productRepo;
+
+    InventoryController(InventoryService inventoryService, ProductRepository productRepo) {
+        this.inventoryService = inventoryService;
+        this.productRepo = productRepo;
+    }
+
+    /**
+     * @param productId the id of the product
+     * @return the units available, without the units leased by other instances
+     */
+    @GetMapping("{productId}")
+    ResponseEntity<StockLevel> findStockLevel(@PathVariable("productId") long productId) {
+        return ResponseEntity.ok(new StockLevel(productId, inventoryService.available(productId)));
+    }
+
+    /**
+     * @param productId the id of the product
+     * @param units     the number of units delivered
+     * @return {@code 204 No Content}, {@code 404 Not Found} for an unknown product
+     */
+    @PostMapping("{productId}/restock")
+    @PreAuthorize("hasAnyAuthority(\"" + AuthoritiesConstants.ADMIN + "\", \""
+        + AuthoritiesConstants.PRODUCT_INFORMATION_MANAGER + "\")")
+    ResponseEntity<Void> restock(@PathVariable("productId") long productId, @RequestParam("units") long units) {
+        if (units <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!productRepo.existsById(productId)) {
+            return ResponseEntity.notFound().build();
+        }
+        inventoryService.restock(productId, units);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the inventory.
+ *
+ * @author Hasan Selman Kara
+ */
+@ConfigurationProperties(prefix = "dershop.inventory")
+public class InventoryProperties {
+
+    /**
+     * Number of units an instance takes from the database at once, reservations are then served from memory.
+     */
+    private int leaseSize = 50;
+
+    /**
+     * Below this stock no more units are leased, every reservation is checked by the database.
+     */
+    private int lowStockThreshold = 200;
+
+    /**
+     * Number of cells the leased units of a product are spread over, to keep concurrent reservations apart.
+     */
+    private int stripes = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * How often the reservations are written to the database.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public void setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+    }
+
+    public int getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+
+    public void setLowStockThreshold(int lowStockThreshold) {
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+}
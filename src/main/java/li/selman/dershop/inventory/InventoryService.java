@@ -0,0 +1,333 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reserves stock of products without a database round trip per reservation.
+ * <p>
+ * An instance leases {@code lease-size} units of a product from the {@code product_stock} table with a single
+ * conditional {@code UPDATE} and hands them out from a {@link StripedCounter} in memory. The reservations are
+ * counted in memory as well and written every {@code flush-interval} in one batch. Leases of products without
+ * reservations since the last flush go back to the stock.
+ * <p>
+ * As the leased units are already taken from the stock, the instances can never reserve more units than there are,
+ * not even together. Once the stock of a product falls below {@code low-stock-threshold} no more leases are taken,
+ * every reservation is then decided by the database with {@code UPDATE ... WHERE quantity >= n}. Hence the last units
+ * of a product are not stuck in the lease of an idle instance while another one is asked for them.
+ * <p>
+ * If the instance dies, its unused leases and the reservations since the last flush are lost. The stock then shows
+ * fewer units than there are, it never shows more.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class InventoryService {
+
+    private final ProductStockRepository stockRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryProperties properties;
+    private final Map<Long, LocalStock> stocks = new ConcurrentHashMap<>();
+
+    InventoryService(ProductStockRepository stockRepo, TransactionTemplate transactionTemplate,
+                     InventoryProperties properties) {
+        this.stockRepo = stockRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Reserves units of a product.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units, positive
+     * @return {@code true} if the units were reserved, {@code false} if there is not enough stock
+     */
+    public boolean reserve(long productId, int units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("units must be positive, was " + units);
+        }
+        LocalStock stock = stockOf(productId);
+        stock.touched = true;
+        if (stock.leased.tryAcquire(units)) {
+            stock.reserved.add(units);
+            return true;
+        }
+        synchronized (stock) {
+            return reserveSlowly(productId, units, stock);
+        }
+    }
+
+    /**
+     * Reserves units of several products at once, e.g. the lines of an order. Either all units are reserved or none,
+     * also if the database fails on the way.
+     *
+     * @param unitsByProductId the number of units by product id, each positive
+     * @return the ids of the products short of stock in iteration order, empty if all units were reserved
+     */
+    public List<Long> reserveAll(Map<Long, Integer> unitsByProductId) {
+        return reserveBatch(List.of(unitsByProductId)).get(0);
+    }
+
+    /**
+     * Reserves the units of a batch of orders, each order all or nothing and the orders in the given order.
+     * <p>
+     * The units are taken from the leases first. What they lack is taken with one statement for the whole batch, a
+     * full lease of a product with enough stock, the rest of the stock of a product below {@code low-stock-threshold}.
+     * Units left over because an order did not get all of its units stay leased to this instance, they go back to the
+     * stock with the next flush once the product is idle.
+     *
+     * @param orders the number of units by product id of every order, each positive
+     * @return the ids of the products short of stock of every order in iteration order, empty for a reserved order
+     */
+    public List<List<Long>> reserveBatch(List<Map<Long, Integer>> orders) {
+        Map<Long, Long> demand = new TreeMap<>();
+        for (Map<Long, Integer> order : orders) {
+            order.forEach((productId, units) -> {
+                if (units <= 0) {
+                    throw new IllegalArgumentException("units must be positive, was " + units);
+                }
+                demand.merge(productId, (long) units, Long::sum);
+            });
+        }
+
+        Map<Long, Long> pool = gather(demand);
+        List<List<Long>> unavailable = new ArrayList<>(orders.size());
+        for (Map<Long, Integer> order : orders) {
+            unavailable.add(allocate(order, pool));
+        }
+        pool.forEach((productId, units) -> stockOf(productId).leased.add(units));
+        return unavailable;
+    }
+
+    /**
+     * Takes the demanded units out of the leases, topped up with one statement.
+     *
+     * @return the units at hand by product id, possibly less than demanded
+     */
+    private Map<Long, Long> gather(Map<Long, Long> demand) {
+        Map<Long, Long> pool = new HashMap<>(demand.size() * 2);
+        Map<Long, Long> shortfall = new TreeMap<>();
+        demand.forEach((productId, units) -> {
+            LocalStock stock = stockOf(productId);
+            stock.touched = true;
+            if (stock.leased.tryAcquire(units)) {
+                pool.put(productId, units);
+                return;
+            }
+            long spare = stock.leased.drain();
+            pool.put(productId, spare);
+            if (spare < units) {
+                shortfall.put(productId, units - spare);
+            }
+        });
+        try {
+            stockRepo.leaseAll(shortfall, properties.getLeaseSize(), properties.getLowStockThreshold())
+                .forEach((productId, units) -> pool.merge(productId, units, Long::sum));
+        } catch (RuntimeException e) {
+            // The drained units are already taken from the stock in the database, they must not get lost
+            pool.forEach((productId, units) -> stockOf(productId).leased.add(units));
+            throw e;
+        }
+        return pool;
+    }
+
+    /**
+     * Reserves the units of one order from the pool if all of them are there.
+     *
+     * @return the ids of the products short of stock, empty if the order is reserved
+     */
+    private List<Long> allocate(Map<Long, Integer> order, Map<Long, Long> pool) {
+        List<Long> unavailable = new ArrayList<>();
+        order.forEach((productId, units) -> {
+            if (pool.get(productId) < units) {
+                unavailable.add(productId);
+            }
+        });
+        if (unavailable.isEmpty()) {
+            order.forEach((productId, units) -> {
+                pool.merge(productId, (long) -units, Long::sum);
+                stockOf(productId).reserved.add(units);
+            });
+        }
+        return unavailable;
+    }
+
+    private LocalStock stockOf(long productId) {
+        return stocks.computeIfAbsent(productId, id -> new LocalStock(properties.getStripes()));
+    }
+
+    /**
+     * Takes the units from the lease, a new lease or the stock in the database, in this order.
+     */
+    private boolean reserveSlowly(long productId, int units, LocalStock stock) {
+        // Gather the units spread over the cells, another thread may also have leased new units in the meantime
+        long spare = stock.leased.drain();
+        if (spare >= units) {
+            stock.leased.add(spare - units);
+            stock.reserved.add(units);
+            return true;
+        }
+
+        long lease = Math.max(properties.getLeaseSize(), units - spare);
+        try {
+            if (stockRepo.lease(productId, lease, properties.getLowStockThreshold())) {
+                stock.leased.add(spare + lease - units);
+                stock.reserved.add(units);
+                return true;
+            }
+
+            // Low stock: hand the rest of the lease back and let the database decide
+            if (stockRepo.reserve(productId, units, spare)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            // The spare units are already taken from the stock in the database, they must not get lost
+            stock.leased.add(spare);
+            throw e;
+        }
+        stock.leased.add(spare);
+        return false;
+    }
+
+    /**
+     * Releases reserved units, e.g. of a cancelled order. They become available to this instance first.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units, positive
+     */
+    public void release(long productId, int units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("units must be positive, was " + units);
+        }
+        LocalStock stock = stockOf(productId);
+        stock.touched = true;
+        stock.leased.add(units);
+        stock.reserved.add(-units);
+    }
+
+    /**
+     * Releases reserved units of several products, see {@link #release(long, int)}.
+     *
+     * @param unitsByProductId the number of units by product id, each positive
+     */
+    public void releaseAll(Map<Long, Integer> unitsByProductId) {
+        unitsByProductId.forEach(this::release);
+    }
+
+    /**
+     * Adds units to the stock of a product.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units, positive
+     */
+    public void restock(long productId, long units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("units must be positive, was " + units);
+        }
+        stockRepo.restock(productId, units);
+    }
+
+    /**
+     * The units available to this instance: the stock in the database plus the own lease. Leases of other instances
+     * are not included.
+     *
+     * @param productId the id of the product
+     * @return the units available to this instance
+     */
+    public long available(long productId) {
+        LocalStock stock = stocks.get(productId);
+        return stockRepo.findQuantity(productId) + (stock == null ? 0 : stock.leased.sum());
+    }
+
+    @Scheduled(
+        initialDelayString = "${dershop.inventory.flush-interval:PT1S}",
+        fixedDelayString = "${dershop.inventory.flush-interval:PT1S}")
+    public void flush() {
+        writeBack(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeBack(true);
+    }
+
+    /**
+     * Writes the reservations and returns the leases of idle products, or of all products on shutdown.
+     */
+    private void writeBack(boolean returnAllLeases) {
+        Map<Long, Long> reserved = new HashMap<>();
+        Map<Long, Long> returned = new HashMap<>();
+        stocks.forEach((productId, stock) -> {
+            long units = stock.reserved.sumThenReset();
+            if (units != 0) {
+                reserved.put(productId, units);
+            }
+            if (returnAllLeases || !stock.touched) {
+                long spare = stock.leased.drain();
+                if (spare > 0) {
+                    returned.put(productId, spare);
+                }
+            }
+            stock.touched = false;
+        });
+        if (reserved.isEmpty() && returned.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                stockRepo.addReserved(reserved);
+                stockRepo.giveBack(returned);
+            });
+        } catch (DataAccessException | TransactionException e) {
+            // Keep the counts, the next flush tries again
+            reserved.forEach((productId, units) -> stocks.get(productId).reserved.add(units));
+            returned.forEach((productId, units) -> stocks.get(productId).leased.add(units));
+            log.warn("Could not flush the reservations of {} products, retrying with the next flush",
+                reserved.size(), e);
+        }
+    }
+
+    /**
+     * The state of a product on this instance. Refilling the lease is synchronized on the instance.
+     */
+    private static final class LocalStock {
+
+        private final StripedCounter leased;
+        private final LongAdder reserved = new LongAdder();
+        private volatile boolean touched;
+
+        private LocalStock(int stripes) {
+            this.leased = new StripedCounter(stripes);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the {@code product_stock} table.
+ * <p>
+ * Every write is a single relative {@code UPDATE} of the stock row, the {@code product} row is never locked.
+ *
+ * @author Hasan Selman Kara
+ */
+@Repository
+public class ProductStockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductStockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param productId the id of the product
+     * @return the units not leased to any instance, {@code 0} if the product has no stock
+     */
+    long findQuantity(long productId) {
+        List<Long> quantity = jdbcTemplate.queryForList(
+            "select quantity from product_stock where product_id = ?", Long.class, productId);
+        return quantity.isEmpty() ? 0 : quantity.get(0);
+    }
+
+    /**
+     * Adds units to the stock of a product, creating the stock row if there is none.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units, positive
+     */
+    void restock(long productId, long units) {
+        jdbcTemplate.update("insert into product_stock (product_id, quantity) values (?, ?)"
+            + " on conflict (product_id) do update set quantity = product_stock.quantity + excluded.quantity",
+            productId, units);
+    }
+
+    /**
+     * Takes units from the stock, as long as at least {@code reserve} units remain afterwards.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units to take
+     * @param reserve   the units which have to remain in stock
+     * @return {@code true} if the units were taken
+     */
+    boolean lease(long productId, long units, long reserve) {
+        return jdbcTemplate.update("update product_stock set quantity = quantity - ?"
+            + " where product_id = ? and quantity >= ?", units, productId, units + reserve) == 1;
+    }
+
+    /**
+     * Takes units of several products with one statement, e.g. the shortfall of a batch of reservations. A product
+     * with at least {@code leaseSize} units more than requested plus {@code reserve} in stock gives a full lease,
+     * any other one what it has, up to the requested units. The rows are locked in ascending product id order,
+     * concurrent calls therefore cannot deadlock.
+     *
+     * @param unitsByProductId the requested units by product id
+     * @param leaseSize        the units taken at least while the stock suffices
+     * @param reserve          the units which have to remain in stock for a full lease
+     * @return the taken units by product id, products which gave nothing are missing
+     */
+    Map<Long, Long> leaseAll(Map<Long, Long> unitsByProductId, long leaseSize, long reserve) {
+        Map<Long, Long> taken = new HashMap<>(unitsByProductId.size() * 2);
+        if (unitsByProductId.isEmpty()) {
+            return taken;
+        }
+        Object[] productIds = unitsByProductId.keySet().toArray();
+        Object[] units = unitsByProductId.values().toArray();
+        PreparedStatementCreator update = connection -> {
+            PreparedStatement statement = connection.prepareStatement("with d as ("
+                + "select * from unnest(?, ?) as d(product_id, units)"
+                + "), s as ("
+                + "select p.product_id, p.quantity from product_stock p join d on d.product_id = p.product_id"
+                + " order by p.product_id for update of p"
+                + "), t as ("
+                + "select s.product_id, case when s.quantity >= greatest(d.units, ?) + ? then greatest(d.units, ?)"
+                + " else least(s.quantity, d.units) end as units from s join d on d.product_id = s.product_id"
+                + ") update product_stock p set quantity = p.quantity - t.units from t"
+                + " where p.product_id = t.product_id and t.units > 0 returning p.product_id, t.units");
+            statement.setArray(1, connection.createArrayOf("bigint", productIds));
+            statement.setArray(2, connection.createArrayOf("bigint", units));
+            statement.setLong(3, leaseSize);
+            statement.setLong(4, reserve);
+            statement.setLong(5, leaseSize);
+            return statement;
+        };
+        jdbcTemplate.query(update, row -> {
+            taken.put(row.getLong("product_id"), row.getLong("units"));
+        });
+        return taken;
+    }
+
+    /**
+     * Reserves units straight from the stock, i.e. without a lease.
+     *
+     * @param productId the id of the product
+     * @param units     the number of units to reserve
+     * @param returned  leased units which are returned to the stock with the same statement
+     * @return {@code true} if the units were reserved and the leased units returned, {@code false} if neither
+     */
+    boolean reserve(long productId, long units, long returned) {
+        return jdbcTemplate.update("update product_stock"
+            + " set quantity = quantity + ? - ?, reserved = reserved + ?"
+            + " where product_id = ? and quantity + ? >= ?",
+            returned, units, units, productId, returned, units) == 1;
+    }
+
+    /**
+     * Adds reservations served from leases, in one batch.
+     *
+     * @param reservedByProductId the number of reserved units by product id, negative for released units
+     */
+    void addReserved(Map<Long, Long> reservedByProductId) {
+        batchUpdate("update product_stock set reserved = reserved + ? where product_id = ?", reservedByProductId);
+    }
+
+    /**
+     * Returns unused leases to the stock, in one batch.
+     *
+     * @param unitsByProductId the number of returned units by product id
+     */
+    void giveBack(Map<Long, Long> unitsByProductId) {
+        batchUpdate("update product_stock set quantity = quantity + ? where product_id = ?", unitsByProductId);
+    }
+
+    private void batchUpdate(String sql, Map<Long, Long> deltaByProductId) {
+        if (deltaByProductId.isEmpty()) {
+            return;
+        }
+        // Concurrent flushes of several instances lock the rows in the same order, hence they cannot deadlock
+        jdbcTemplate.batchUpdate(sql, deltaByProductId.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(delta -> new Object[] {delta.getValue(), delta.getKey()})
+            .collect(Collectors.toList()));
+    }
+}
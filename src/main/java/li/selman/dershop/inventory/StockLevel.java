@@ -0,0 +1,40 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+/**
+ * The units of a product available to the answering instance.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class StockLevel {
+
+    private final long productId;
+    private final long available;
+
+    StockLevel(long productId, long available) {
+        this.productId = productId;
+        this.available = available;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which never drops below zero, spread over several cells like a
+ * {@link java.util.concurrent.atomic.LongAdder}.
+ * <p>
+ * Every thread starts at its own cell, so concurrent acquisitions rarely compete for the same compare-and-set. A cell
+ * is only decremented if it holds enough units, hence no cell and therefore the sum never becomes negative. As the
+ * units are spread, an acquisition may fail although the sum would suffice, {@link #drain()} and {@link #add(long)}
+ * gather them again.
+ *
+ * @author Hasan Selman Kara
+ */
+final class StripedCounter {
+
+    /**
+     * Longs per cache line, every cell gets a line of its own to avoid false sharing.
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    StripedCounter(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        // The first line stays unused, it is shared with the array header
+        this.cells = new AtomicLongArray((size + 1) * PADDING);
+    }
+
+    /**
+     * Takes units if one cell holds enough of them.
+     *
+     * @param units the number of units, positive
+     * @return {@code true} if the units were taken
+     */
+    boolean tryAcquire(long units) {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            int slot = slot(home + i);
+            long current = cells.get(slot);
+            while (current >= units) {
+                if (cells.compareAndSet(slot, current, current - units)) {
+                    return true;
+                }
+                current = cells.get(slot);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param units the number of units to add to the cell of the current thread, non-negative
+     */
+    void add(long units) {
+        cells.addAndGet(slot(home()), units);
+    }
+
+    /**
+     * @return the units of all cells, concurrent changes may or may not be seen
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(slot(i));
+        }
+        return sum;
+    }
+
+    /**
+     * Takes all units, concurrent acquisitions get either the units or nothing.
+     *
+     * @return the units taken
+     */
+    long drain() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.getAndSet(slot(i), 0);
+        }
+        return sum;
+    }
+
+    private int home() {
+        // Fibonacci hashing spreads the sequential thread ids over the cells
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private int slot(int stripe) {
+        return ((stripe & mask) + 1) * PADDING;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+/**
+ * The outcome of a checkout.
+ *
+ * @author Hasan Selman Kara
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class CheckoutResult {
+
+    /**
+     * What became of the checkout.
+     */
+    public enum Status {
+        /**
+         * The order is placed and its stock reserved.
+         */
+        PLACED,
+        /**
+         * At least one product is short of stock, nothing was reserved.
+         */
+        OUT_OF_STOCK,
+        /**
+         * The checkout was not processed because of overload, it may be retried.
+         */
+        REJECTED
+    }
+
+    private static final CheckoutResult REJECTED = new CheckoutResult(Status.REJECTED, null, null);
+
+    private final Status status;
+    private final PlacedOrder order;
+    private final List<Long> unavailableProductIds;
+
+    private CheckoutResult(Status status, PlacedOrder order, List<Long> unavailableProductIds) {
+        this.status = status;
+        this.order = order;
+        this.unavailableProductIds = unavailableProductIds;
+    }
+
+    static CheckoutResult placed(PlacedOrder order) {
+        return new CheckoutResult(Status.PLACED, order, null);
+    }
+
+    static CheckoutResult outOfStock(List<Long> unavailableProductIds) {
+        return new CheckoutResult(Status.OUT_OF_STOCK, null, List.copyOf(unavailableProductIds));
+    }
+
+    static CheckoutResult rejected() {
+        return REJECTED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the placed order, {@code null} unless {@link Status#PLACED}
+     */
+    public PlacedOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the products short of stock, {@code null} unless {@link Status#OUT_OF_STOCK}
+     */
+    public List<Long> getUnavailableProductIds() {
+        return unavailableProductIds;
+    }
+}
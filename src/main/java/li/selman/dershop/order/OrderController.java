@@ -0,0 +1,143 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import li.selman.dershop.app.cache.SingleFlightTimeoutException;
+import li.selman.dershop.app.security.SecurityUtils;
+import li.selman.dershop.cart.CartItem;
+import li.selman.dershop.cart.CartService;
+import li.selman.dershop.cart.CartView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Checkout and the orders of the authenticated user.
+ *
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/orders")
+@Slf4j
+public class OrderController {
+
+    private final OrderPipeline orderPipeline;
+    private final OrderRepository orderRepo;
+    private final CartService cartService;
+    private final OrderProperties properties;
+    private final Executor executor;
+
+    OrderController(OrderPipeline orderPipeline, OrderRepository orderRepo, CartService cartService,
+                    OrderProperties properties, @Qualifier("taskExecutor") Executor executor) {
+        this.orderPipeline = orderPipeline;
+        this.orderRepo = orderRepo;
+        this.cartService = cartService;
+        this.properties = properties;
+        this.executor = executor;
+    }
+
+    /**
+     * Orders the content of the cart. The request thread is released while the checkout waits for its batch.
+     *
+     * @return {@code 201 Created} with the order, {@code 409 Conflict} with the products short of stock,
+     * {@code 503 Service Unavailable} if the checkout is rejected because of overload, or {@code 400 Bad Request} if
+     * the cart is empty
+     */
+    @PostMapping
+    CompletableFuture<ResponseEntity<CheckoutResult>> checkout() {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (login.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        CartView cart;
+        try {
+            cart = cartService.find(login.get());
+        } catch (SingleFlightTimeoutException e) {
+            return CompletableFuture.completedFuture(serviceUnavailable());
+        }
+        if (cart.getItems().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        List<OrderLine> lines = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            lines.add(new OrderLine(item.getProductId(), item.getQuantity()));
+        }
+        // The request is not bound to the thread completing the checkout. The cart is updated on the task executor,
+        // a cold cart would hold up the order pipeline otherwise.
+        UriComponentsBuilder location = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}");
+        return orderPipeline.submit(login.get(), lines).thenApplyAsync(result -> {
+            switch (result.getStatus()) {
+                case PLACED:
+                    subtractOrdered(login.get(), lines);
+                    return ResponseEntity.created(location.buildAndExpand(result.getOrder().getId()).toUri())
+                        .body(result);
+                case OUT_OF_STOCK:
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+                default:
+                    return serviceUnavailable();
+            }
+        }, executor);
+    }
+
+    /**
+     * Takes the ordered products out of the cart. The order is placed already, a failure leaves them in the cart.
+     */
+    private void subtractOrdered(String login, List<OrderLine> lines) {
+        try {
+            cartService.subtract(login, ordered(lines));
+        } catch (RuntimeException e) {
+            log.warn("Could not take the ordered products out of the cart of {}", login, e);
+        }
+    }
+
+    @GetMapping("{id}")
+    ResponseEntity<PlacedOrder> findById(@PathVariable("id") long id) {
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (login.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return orderRepo.findById(id, login.get())
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private <T> ResponseEntity<T> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfter().toSeconds()))
+            .build();
+    }
+
+    private static Map<Long, Integer> ordered(List<OrderLine> lines) {
+        return lines.stream().collect(Collectors.toMap(OrderLine::getProductId, OrderLine::getQuantity));
+    }
+}
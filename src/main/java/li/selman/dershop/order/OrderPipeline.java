@@ -0,0 +1,234 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import li.selman.dershop.inventory.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Places the orders of concurrent checkouts in micro-batches.
+ * <p>
+ * Checkouts are put into a bounded queue, a full queue rejects them right away instead of letting the request
+ * threads pile up. A single thread takes everything queued, up to {@code max-batch-size}, reserves the stock of the
+ * checkouts in the order they arrived with {@link InventoryService#reserveBatch(List)}, i.e. with at most one
+ * statement for the whole batch, and inserts the accepted orders with one transaction and one JDBC batch. The
+ * batches grow with the load without adding latency when idle, while a checkout is being placed the next batch
+ * gathers in the queue.
+ * <p>
+ * Checkouts which waited longer than {@code max-queue-time} are rejected without being placed, the client has
+ * probably given up already. If the orders cannot be inserted, their reservations are released again.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+@Slf4j
+public class OrderPipeline {
+
+    private final OrderRepository orderRepo;
+    private final InventoryService inventory;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderProperties properties;
+    private final BlockingQueue<Checkout> queue;
+
+    private final Counter placed;
+    private final Counter outOfStock;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    OrderPipeline(OrderRepository orderRepo, InventoryService inventory, TransactionTemplate transactionTemplate,
+                  OrderProperties properties, MeterRegistry meterRegistry) {
+        this.orderRepo = orderRepo;
+        this.inventory = inventory;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.placed = meterRegistry.counter("orders.checkouts", "result", "placed");
+        this.outOfStock = meterRegistry.counter("orders.checkouts", "result", "out_of_stock");
+        this.rejected = meterRegistry.counter("orders.checkouts", "result", "rejected");
+        this.batchSizes = meterRegistry.summary("orders.batch.size");
+        meterRegistry.gaugeCollectionSize("orders.queue.size", List.of(), queue);
+    }
+
+    /**
+     * Queues a checkout.
+     *
+     * @param login the login of the customer
+     * @param lines the lines of the order, one per product
+     * @return the outcome, completed once the batch of the checkout is committed, or right away if the queue is full
+     */
+    public CompletableFuture<CheckoutResult> submit(String login, List<OrderLine> lines) {
+        Checkout checkout = new Checkout(login, lines);
+        if (!running || !queue.offer(checkout)) {
+            rejected.increment();
+            return CompletableFuture.completedFuture(CheckoutResult.rejected());
+        }
+        return checkout.result;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "order-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        List<Checkout> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(this::reject);
+    }
+
+    private void run() {
+        List<Checkout> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running) {
+            try {
+                Checkout first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Checkout> batch) {
+        long oldestAllowed = System.nanoTime() - properties.getMaxQueueTime().toNanos();
+        for (Iterator<Checkout> checkouts = batch.iterator(); checkouts.hasNext();) {
+            Checkout checkout = checkouts.next();
+            if (checkout.queuedAt - oldestAllowed < 0) {
+                reject(checkout);
+                checkouts.remove();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        List<Checkout> accepted;
+        try {
+            accepted = reserve(batch);
+        } catch (RuntimeException e) {
+            // Nothing is reserved then
+            log.error("Could not reserve the stock of a batch of {} orders", batch.size(), e);
+            batch.forEach(checkout -> checkout.result.completeExceptionally(e));
+            return;
+        }
+        if (!accepted.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> place(accepted));
+            } catch (RuntimeException e) {
+                log.error("Could not place a batch of {} orders", accepted.size(), e);
+                accepted.forEach(checkout -> inventory.releaseAll(checkout.units));
+                accepted.forEach(checkout -> checkout.result.completeExceptionally(e));
+                batch.removeAll(accepted);
+            }
+        }
+        // Only now the orders are committed
+        for (Checkout checkout : batch) {
+            (checkout.outcome.getStatus() == CheckoutResult.Status.PLACED ? placed : outOfStock).increment();
+            checkout.result.complete(checkout.outcome);
+        }
+    }
+
+    /**
+     * @return the checkouts whose stock is reserved
+     */
+    private List<Checkout> reserve(List<Checkout> batch) {
+        List<Map<Long, Integer>> orders = new ArrayList<>(batch.size());
+        batch.forEach(checkout -> orders.add(checkout.units));
+        List<List<Long>> unavailable = inventory.reserveBatch(orders);
+        List<Checkout> accepted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Checkout checkout = batch.get(i);
+            if (unavailable.get(i).isEmpty()) {
+                accepted.add(checkout);
+            } else {
+                checkout.outcome = CheckoutResult.outOfStock(unavailable.get(i));
+            }
+        }
+        return accepted;
+    }
+
+    private void place(List<Checkout> accepted) {
+        List<Long> ids = orderRepo.nextIds(accepted.size());
+        Instant now = Instant.now();
+        List<PlacedOrder> orders = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Checkout checkout = accepted.get(i);
+            PlacedOrder order = new PlacedOrder(ids.get(i), checkout.login, now, checkout.lines);
+            orders.add(order);
+            checkout.outcome = CheckoutResult.placed(order);
+        }
+        orderRepo.insertAll(orders);
+    }
+
+    private void reject(Checkout checkout) {
+        rejected.increment();
+        checkout.result.complete(CheckoutResult.rejected());
+    }
+
+    /**
+     * A queued checkout. The outcome is only touched by the pipeline thread.
+     */
+    private static final class Checkout {
+
+        private final String login;
+        private final List<OrderLine> lines;
+        private final Map<Long, Integer> units = new LinkedHashMap<>();
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<CheckoutResult> result = new CompletableFuture<>();
+        private CheckoutResult outcome;
+
+        private Checkout(String login, List<OrderLine> lines) {
+            this.login = login;
+            this.lines = lines;
+            lines.forEach(line -> units.merge(line.getProductId(), line.getQuantity(), Integer::sum));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the order placement.
+ *
+ * @author Hasan Selman Kara
+ */
+@ConfigurationProperties(prefix = "dershop.order")
+public class OrderProperties {
+
+    /**
+     * Maximum number of checkouts waiting for placement, further checkouts are rejected right away.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * Maximum number of checkouts placed with one transaction.
+     */
+    private int maxBatchSize = 200;
+
+    /**
+     * How long a checkout may wait in the queue, it is rejected afterwards.
+     */
+    private Duration maxQueueTime = Duration.ofSeconds(5);
+
+    /**
+     * Sent as {@code Retry-After} with rejected checkouts.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    public void setMaxQueueTime(Duration maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the orders, every method issues a single statement or batch.
+ *
+ * @author Hasan Selman Kara
+ */
+@Repository
+public class OrderRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param count the number of ids
+     * @return new order ids, drawn with one query
+     */
+    List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList(
+            "select nextval('customer_order_sequence') from generate_series(1, ?)", Long.class, count);
+    }
+
+    /**
+     * Inserts the orders and their lines with one batch each.
+     *
+     * @param orders the orders
+     */
+    void insertAll(List<PlacedOrder> orders) {
+        List<Object[]> orderRows = new ArrayList<>(orders.size());
+        List<Object[]> lineRows = new ArrayList<>();
+        for (PlacedOrder order : orders) {
+            orderRows.add(new Object[] {order.getId(), order.getLogin(), Timestamp.from(order.getCreatedDate())});
+            for (OrderLine line : order.getLines()) {
+                lineRows.add(new Object[] {order.getId(), line.getProductId(), line.getQuantity()});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into customer_order (id, login, created_date) values (?, ?, ?)", orderRows);
+        jdbcTemplate.batchUpdate(
+            "insert into customer_order_line (order_id, product_id, quantity) values (?, ?, ?)", lineRows);
+    }
+
+    /**
+     * @param id    the id of the order
+     * @param login the login of the owner, orders of other users are not found
+     * @return the order
+     */
+    Optional<PlacedOrder> findById(long id, String login) {
+        List<OrderLine> lines = new ArrayList<>();
+        List<Timestamp> createdDate = new ArrayList<>(1);
+        jdbcTemplate.query("select o.created_date, l.product_id, l.quantity from customer_order o"
+            + " join customer_order_line l on l.order_id = o.id where o.id = ? and o.login = ?", row -> {
+                createdDate.add(row.getTimestamp("created_date"));
+                lines.add(new OrderLine(row.getLong("product_id"), row.getInt("quantity")));
+            }, id, login);
+        if (lines.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new PlacedOrder(id, login, createdDate.get(0).toInstant(), lines));
+    }
+}
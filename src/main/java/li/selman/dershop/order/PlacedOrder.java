@@ -0,0 +1,55 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An order whose stock is reserved.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class PlacedOrder {
+
+    private final long id;
+    private final String login;
+    private final Instant createdDate;
+    private final List<OrderLine> lines;
+
+    PlacedOrder(long id, String login, Instant createdDate, List<OrderLine> lines) {
+        this.id = id;
+        this.login = login;
+        this.createdDate = createdDate;
+        this.lines = List.copyOf(lines);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import li.selman.dershop.app.ProfileConstants;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+/**
+ * Registers the endpoints of the {@link AsyncProductReadController} in place of the product reads of the
+ * {@link ProductController}.
+ * <p>
+ * Both declare the same mappings, so they cannot share a handler mapping. The asynchronous controller is no
+ * {@code @Controller}, hence the regular handler mapping ignores it, and gets a handler mapping of its own. The
+ * dispatcher servlet asks that one first, the {@link ProductController} keeps serving everything else.
+ *
+ * @author Hasan Selman Kara
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile(ProfileConstants.ASYNC_READS)
+public class AsyncProductReadConfiguration {
+
+    /**
+     * Ahead of the regular handler mapping, which has the order {@code 0}.
+     */
+    private static final int ORDER = -1;
+
+    @Bean
+    HandlerMapping asyncProductReadHandlerMapping() {
+        RequestMappingHandlerMapping mapping = new AsyncProductReadHandlerMapping();
+        mapping.setOrder(ORDER);
+        return mapping;
+    }
+
+    private static final class AsyncProductReadHandlerMapping extends RequestMappingHandlerMapping {
+
+        @Override
+        protected boolean isHandler(Class<?> beanType) {
+            return AsyncProductReadController.class.isAssignableFrom(beanType);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import li.selman.dershop.app.ProfileConstants;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * The product read endpoints of the {@link ProductController}, served without blocking the request threads.
+ * <p>
+ * The request thread hands the call of the controller to a pool of {@code async-read-threads} and returns to the
+ * servlet container, the response is completed through the asynchronous request processing. Hence the database calls
+ * block the threads of this pool, sized like the connection pool, instead of the request threads. A burst of reads
+ * queues here while the request threads keep accepting and serving everything else, reads beyond
+ * {@code async-read-queue-capacity} are answered with {@code 503 Service Unavailable}. The responses are the ones of
+ * the {@link ProductController}.
+ * <p>
+ * Only active with the {@value ProfileConstants#ASYNC_READS} profile. The endpoints are registered by a handler
+ * mapping of their own, ahead of the one of the controllers, see {@link AsyncProductReadConfiguration}.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+@Profile(ProfileConstants.ASYNC_READS)
+public class AsyncProductReadController {
+
+    private final ProductController productController;
+    private final ExecutorService executor;
+
+    AsyncProductReadController(ProductController productController, ProductProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.productController = productController;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-read-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(properties.getAsyncReadThreads(),
+            properties.getAsyncReadThreads(), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getAsyncReadQueueCapacity()), threadFactory);
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "productReads");
+    }
+
+    /**
+     * @see ProductController#findAll(String, int, String, String, String, ServletWebRequest)
+     */
+    @GetMapping(ProductController.PATH)
+    CompletableFuture<ResponseEntity<CollectionModel<RepresentationModel<?>>>> findAll(
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "size", defaultValue = "" + ProductController.DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(name = "total", defaultValue = "none") String total,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        return offload(request, response,
+            webRequest -> productController.findAll(cursor, size, total, fields, links, webRequest));
+    }
+
+    /**
+     * @see ProductController#findAllSummaries(String, int, String, ServletWebRequest)
+     */
+    @GetMapping(path = ProductController.PATH, params = "view=" + ProductController.SUMMARY_VIEW)
+    CompletableFuture<ResponseEntity<CollectionModel<ProductSummary>>> findAllSummaries(
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "size", defaultValue = "" + ProductController.DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(name = "total", defaultValue = "none") String total,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        return offload(request, response,
+            webRequest -> productController.findAllSummaries(cursor, size, total, webRequest));
+    }
+
+    /**
+     * @see ProductController#findAllById(List, String, String)
+     */
+    @GetMapping(path = ProductController.PATH, params = "ids")
+    CompletableFuture<ResponseEntity<CollectionModel<RepresentationModel<?>>>> findAllById(
+        @RequestParam("ids") List<Long> ids,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        return offload(request, response, webRequest -> productController.findAllById(ids, fields, links));
+    }
+
+    /**
+     * @see ProductController#findById(Long, String, String, ServletWebRequest)
+     */
+    // Digits only, the other resources below the products are mapped by the regular handler mapping
+    @GetMapping(ProductController.PATH + "/{id:\\d+}")
+    CompletableFuture<ResponseEntity<RepresentationModel<?>>> findById(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links,
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) {
+        return offload(request, response, webRequest -> productController.findById(id, fields, links, webRequest));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the read on the pool. The links and the conditional headers of the controller are bound to the request and
+     * the recently viewed products to the user, hence the request and the security context are exposed to the pool
+     * thread for the duration of the read.
+     * <p>
+     * A {@code null} response means the controller answered with {@code 304 Not Modified} on the response already.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> offload(HttpServletRequest request, HttpServletResponse response,
+                                                            Function<ServletWebRequest, ResponseEntity<T>> read) {
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                ServletRequestAttributes attributes = new ServletRequestAttributes(request, response);
+                RequestContextHolder.setRequestAttributes(attributes);
+                SecurityContextHolder.setContext(securityContext);
+                try {
+                    return read.apply(new ServletWebRequest(request, response));
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    RequestContextHolder.resetRequestAttributes();
+                    attributes.requestCompleted();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build());
+        }
+    }
+}
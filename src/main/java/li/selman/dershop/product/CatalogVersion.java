@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Instant;
+
+/**
+ * Cheap fingerprint of the whole product catalog, used to answer conditional requests on the product listings without
+ * loading any product.
+ * <p>
+ * Every committed insert, update and delete of a product is recorded in the change feed with a new sequence number,
+ * hence the sequence number of the newest change identifies the state of the catalog. It is read through the primary
+ * key of the change feed, independent of the size of the catalog.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class CatalogVersion {
+
+    private final long seq;
+    private final Instant lastModified;
+
+    /**
+     * @param seq          the sequence number of the newest change
+     * @param lastModified the time of the newest change, {@code null} if it is unknown, e.g. because the change was
+     *                     compacted away
+     */
+    public CatalogVersion(long seq, Instant lastModified) {
+        this.seq = seq;
+        this.lastModified = lastModified;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return the time of the newest change in epoch milliseconds, {@code -1} if it is unknown
+     */
+    public long getLastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+
+    /**
+     * Strong entity tag of the catalog state, independent of the representation.
+     *
+     * @return the ETag value, without the quotes
+     */
+    public String getETag() {
+        return "c" + seq;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogVersion{"
+            + "seq=" + seq
+            + ", lastModified=" + lastModified
+            + '}';
+    }
+}
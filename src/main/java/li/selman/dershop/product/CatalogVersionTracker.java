@@ -0,0 +1,93 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the current {@link CatalogVersion} in memory, a conditional request on the listings does not query the
+ * database.
+ * <p>
+ * The version is dropped on every committed {@link ProductChangedEvent} of this instance and read again by the next
+ * request. The changes of the other instances are not announced, hence the version is read again at the latest
+ * {@code catalog-version-max-age} after it was read. Concurrent requests finding no version share one read.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+public class CatalogVersionTracker {
+
+    private final ProductChangeRepository changeRepo;
+    private final long maxAgeNanos;
+
+    /**
+     * Incremented on every change, a version read before the change is not used afterwards.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final Object loadLock = new Object();
+    private volatile Loaded loaded;
+
+    CatalogVersionTracker(ProductChangeRepository changeRepo, ProductProperties properties) {
+        this.changeRepo = changeRepo;
+        this.maxAgeNanos = properties.getCatalogVersionMaxAge().toNanos();
+    }
+
+    /**
+     * @return the current version of the catalog, at most {@code catalog-version-max-age} behind the other instances
+     */
+    public CatalogVersion current() {
+        Loaded current = loaded;
+        if (isValid(current)) {
+            return current.version;
+        }
+        synchronized (loadLock) {
+            current = loaded;
+            if (isValid(current)) {
+                return current.version;
+            }
+            long readGeneration = generation.get();
+            long readAt = System.nanoTime();
+            CatalogVersion version = changeRepo.findCatalogVersion();
+            loaded = new Loaded(version, readGeneration, readAt);
+            return version;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    private boolean isValid(Loaded current) {
+        return current != null && current.generation == generation.get()
+            && System.nanoTime() - current.readAt < maxAgeNanos;
+    }
+
+    private static final class Loaded {
+
+        private final CatalogVersion version;
+        private final long generation;
+        private final long readAt;
+
+        private Loaded(CatalogVersion version, long generation, long readAt) {
+            this.version = version;
+            this.generation = generation;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over {@code long} items, i.e. approximate counters in fixed memory.
+ * <p>
+ * Every item is counted in one cell per row, chosen by a row specific hash. The estimate is the smallest of these
+ * cells, it never undercounts and overcounts by at most {@code e / width} of the total count with a probability of
+ * {@code 1 - exp(-depth)}. The hashes are fixed, hence sketches of the same dimensions built on different instances
+ * can be merged by adding their cells.
+ * <p>
+ * The sketch is safe for concurrent use, the cells are updated without locking.
+ *
+ * @author Hasan Selman Kara
+ */
+final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+        0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L,
+        0xff51afd7ed558ccdL, 0xc4ceb9fe1a85ec53L, 0x94d049bb133111ebL, 0xbf58476d1ce4e5b9L
+    };
+
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param depth the number of rows, at most 8
+     * @param width the number of cells per row, a power of two
+     */
+    CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Unsupported dimensions " + depth + "x" + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.cells = new AtomicLongArray(depth * width);
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int width() {
+        return width;
+    }
+
+    /**
+     * @param item  the item
+     * @param count the number of occurrences to add
+     * @return the estimate of the item including the added occurrences
+     */
+    long add(long item, long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells.addAndGet(cell(row, item), count));
+        }
+        return estimate;
+    }
+
+    long estimate(long item) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells.get(cell(row, item)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Adds the counts of the other sketch to this one.
+     *
+     * @param other a sketch of the same dimensions
+     */
+    void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+                + " sketch into a " + depth + "x" + width + " one");
+        }
+        for (int i = 0; i < cells.length(); i++) {
+            long count = other.cells.get(i);
+            if (count != 0) {
+                cells.addAndGet(i, count);
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    /**
+     * Writes the cells, concurrent additions may or may not be included.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        for (int i = 0; i < cells.length(); i++) {
+            out.writeLong(cells.get(i));
+        }
+    }
+
+    /**
+     * Adds the cells written by {@link #writeTo(DataOutput)} of a sketch of the same dimensions.
+     */
+    void mergeFrom(DataInput in) throws IOException {
+        for (int i = 0; i < cells.length(); i++) {
+            long count = in.readLong();
+            if (count != 0) {
+                cells.addAndGet(i, count);
+            }
+        }
+    }
+
+    private int cell(int row, long item) {
+        // Murmur3 finalizer with a seed per row
+        long h = item ^ SEEDS[row];
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return row * width + ((int) h & (width - 1));
+    }
+}
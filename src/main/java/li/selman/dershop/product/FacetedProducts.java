@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import java.util.Map;
+import org.springframework.hateoas.RepresentationModel;
+
+/**
+ * One page of the products matching a filter, together with the total number of matches and the facet counts.
+ * <p>
+ * A {@code CollectionModel} cannot carry the additional properties, hence the page embeds the products under the
+ * same {@code products} relation itself.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class FacetedProducts extends RepresentationModel<FacetedProducts> {
+
+    private final List<RepresentationModel<?>> products;
+    private final int total;
+    private final Map<String, List<ProductFacetCount>> facets;
+
+    FacetedProducts(List<RepresentationModel<?>> products, int total, Map<String, List<ProductFacetCount>> facets) {
+        this.products = products;
+        this.total = total;
+        this.facets = facets;
+    }
+
+    @JsonProperty("_embedded")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, List<RepresentationModel<?>>> getEmbedded() {
+        return products.isEmpty() ? Map.of() : Map.of("products", products);
+    }
+
+    /**
+     * @return the number of matching products over all pages
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the counts by facet name
+     */
+    public Map<String, List<ProductFacetCount>> getFacets() {
+        return facets;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FacetedProducts) || !super.equals(other)) {
+            return false;
+        }
+        FacetedProducts that = (FacetedProducts) other;
+        return total == that.total && products.equals(that.products) && facets.equals(that.facets);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + products.hashCode()) + total;
+    }
+}
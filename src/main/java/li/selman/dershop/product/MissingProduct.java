@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * Placeholder for a requested product which does not exist, keeps the position of the id in a multi-get response.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "product", collectionRelation = "products")
+public final class MissingProduct {
+
+    private final long id;
+
+    MissingProduct(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Always {@code true}, tells the marker apart from a product.
+     *
+     * @return {@code true}
+     */
+    public boolean isNotFound() {
+        return true;
+    }
+}
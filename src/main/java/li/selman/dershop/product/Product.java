@@ -15,26 +15,70 @@
  */
 package li.selman.dershop.product;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+import java.time.Instant;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.SequenceGenerator;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Version;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.hateoas.server.core.Relation;
 
 /**
  * @author Hasan Selman Kara
  */
 @Entity
 @Table(name = "product")
+@EntityListeners(ProductEntityListener.class)
+@Relation(itemRelation = "product", collectionRelation = "products")
 public class Product {
 
+    /**
+     * Number of ids reserved with one call to the {@code product_sequence}, has to match its increment.
+     */
+    static final int ID_ALLOCATION_SIZE = 500;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productSequenceGenerator")
+    @GenericGenerator(
+        name = "productSequenceGenerator",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "product_sequence"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE),
+            // the sequence value is the lowest id of the block, i.e. ids stay unique with other allocation sizes
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+        })
     private Long id;
     private String name;
 
+    @Column(name = "price", precision = 12, scale = 2)
+    private BigDecimal price;
+
+    @Column(name = "category", length = 100)
+    private String category;
+
+    @Column(name = "brand", length = 100)
+    private String brand;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private long version;
+
+    @Column(name = "last_modified_date", nullable = false)
+    @JsonIgnore
+    private Instant lastModifiedDate = Instant.now();
+
     // Why JPA
     protected Product() {
     }
@@ -44,10 +88,32 @@ public class Product {
         this.name = name;
     }
 
+    Product(Long id, String name, BigDecimal price, String category, String brand) {
+        this(name, price, category, brand);
+        this.id = id;
+    }
+
+    /**
+     * A detached copy, e.g. as read from the {@link ProductSnapshot}.
+     */
+    Product(Long id, String name, BigDecimal price, String category, String brand, long version,
+            Instant lastModifiedDate) {
+        this(id, name, price, category, brand);
+        this.version = version;
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public Product(String name) {
         this.name = name;
     }
 
+    public Product(String name, BigDecimal price, String category, String brand) {
+        this.name = name;
+        this.price = price;
+        this.category = category;
+        this.brand = brand;
+    }
+
     public Long getId() {
         return id;
     }
@@ -56,6 +122,39 @@ public class Product {
         return name;
     }
 
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    /**
+     * @return a detached copy, changes to it do not affect this product
+     */
+    Product copy() {
+        return new Product(id, name, price, category, brand, version, lastModifiedDate);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModifiedDate = Instant.now();
+    }
+
     @Override
     public String toString() {
         return "Product{"
@@ -0,0 +1,106 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * One recorded insert, update or delete of a {@link Product}.
+ * <p>
+ * The rows are written by a database trigger when the transaction commits, the application only reads them.
+ *
+ * @author Hasan Selman Kara
+ */
+@Entity
+@Immutable
+@Table(name = "product_change")
+public class ProductChange {
+
+    /**
+     * Kind of the change, stored as its first letter.
+     */
+    public enum Operation {
+        INSERT, UPDATE, DELETE;
+
+        static Operation of(String code) {
+            for (Operation operation : values()) {
+                if (operation.name().charAt(0) == code.charAt(0)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown product change operation: " + code);
+        }
+    }
+
+    @Id
+    @Column(name = "seq")
+    private Long seq;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "operation", nullable = false, length = 1)
+    private String operation;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    // Why JPA
+    protected ProductChange() {
+    }
+
+    ProductChange(long seq, long productId, Operation operation, Instant changedAt) {
+        this.seq = seq;
+        this.productId = productId;
+        this.operation = operation.name().substring(0, 1);
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Position in the change log, strictly increasing in commit order.
+     *
+     * @return the change sequence number
+     */
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Operation getOperation() {
+        return Operation.of(operation);
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChange{"
+            + "seq=" + seq
+            + ", productId=" + productId
+            + ", operation=" + operation
+            + '}';
+    }
+}
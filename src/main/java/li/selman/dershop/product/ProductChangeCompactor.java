@@ -0,0 +1,55 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the product change log bounded.
+ * <p>
+ * Only the latest change per product is kept, and deletes older than {@link ProductProperties#getChangeRetention()}
+ * expire. Hence the log holds one row per existing product plus the deletes of the retention period, and reading it
+ * from the start still yields the whole catalog.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+@Slf4j
+public class ProductChangeCompactor {
+
+    private final ProductChangeRepository changeRepo;
+    private final ProductProperties properties;
+
+    ProductChangeCompactor(ProductChangeRepository changeRepo, ProductProperties properties) {
+        this.changeRepo = changeRepo;
+        this.properties = properties;
+    }
+
+    @Scheduled(
+        initialDelayString = "${dershop.product.change-compaction-interval:PT1H}",
+        fixedDelayString = "${dershop.product.change-compaction-interval:PT1H}")
+    @Transactional
+    public void compact() {
+        int superseded = changeRepo.deleteSuperseded();
+        changeRepo.expireOlderThan(Instant.now().minus(properties.getChangeRetention()));
+        log.info("Compacted the product change log: {} superseded changes removed, horizon at {}",
+            superseded, changeRepo.findHorizon());
+    }
+}
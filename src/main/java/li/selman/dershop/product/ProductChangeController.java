@@ -0,0 +1,109 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductChangeController {
+
+    static final int DEFAULT_CHANGES_SIZE = 100;
+    static final int MAX_CHANGES_SIZE = 1000;
+
+    private final ProductChangeRepository changeRepo;
+    private final ProductLookup productLookup;
+    private final ProductLinks productLinks;
+
+    ProductChangeController(ProductChangeRepository changeRepo, ProductLookup productLookup,
+                            ProductLinks productLinks) {
+        this.changeRepo = changeRepo;
+        this.productLookup = productLookup;
+        this.productLinks = productLinks;
+    }
+
+    /**
+     * Change feed of the catalog for incremental syncs.
+     * <p>
+     * Start with {@code since=0}, which yields every product, and follow the {@code next} links. Remember the
+     * {@code seq} of the last change and pass it as {@code since} on the next sync. Changes of the same product may
+     * be merged, the feed always ends with its latest state.
+     *
+     * @param since the sequence number of the last change seen
+     * @param size  the maximum number of changes, capped at {@value #MAX_CHANGES_SIZE}
+     * @return the changes after {@code since} in commit order, {@code 410 Gone} if deletes after {@code since} have
+     *     been compacted away and the client has to start over with {@code since=0}
+     */
+    @GetMapping("changes")
+    ResponseEntity<CollectionModel<EntityModel<ProductChangeEntry>>> findChanges(
+        @RequestParam(name = "since", defaultValue = "0") long since,
+        @RequestParam(name = "size", defaultValue = "" + DEFAULT_CHANGES_SIZE) int size
+    ) {
+        if (since > 0 && since < changeRepo.findHorizon()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_CHANGES_SIZE));
+        Slice<ProductChange> changes = changeRepo.findBySeqGreaterThanOrderBySeqAsc(since, PageRequest.of(0, pageSize));
+
+        Map<Long, Product> products = productLookup.findAllById(changes.stream()
+            .filter(change -> change.getOperation() != ProductChange.Operation.DELETE)
+            .map(ProductChange::getProductId)
+            .collect(Collectors.toList()));
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+        List<EntityModel<ProductChangeEntry>> entries = changes.stream()
+            .map(change -> {
+                Product product = products.get(change.getProductId());
+                EntityModel<ProductChangeEntry> entry = EntityModel.of(new ProductChangeEntry(change, product));
+                return product == null ? entry : entry.add(links.self(product.getId()).withRel("product"));
+            })
+            .collect(Collectors.toList());
+
+        CollectionModel<EntityModel<ProductChangeEntry>> model = CollectionModel.of(entries,
+            changesLink(links, since, pageSize).withSelfRel());
+        if (changes.hasNext()) {
+            long lastSeq = changes.getContent().get(changes.getNumberOfElements() - 1).getSeq();
+            model.add(changesLink(links, lastSeq, pageSize).withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(model);
+    }
+
+    private static Link changesLink(ProductLinks.RequestLinks links, long since, int size) {
+        return Link.of(UriComponentsBuilder.fromUriString(links.collectionHref())
+            .path("/changes")
+            .queryParam("since", since)
+            .queryParam("size", size)
+            .toUriString());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * A change of the catalog as returned by the change feed, with the current name of the product unless it is deleted.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "change", collectionRelation = "changes")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ProductChangeEntry {
+
+    private final long seq;
+    private final long productId;
+    private final ProductChange.Operation operation;
+    private final Instant changedAt;
+    private final String name;
+
+    ProductChangeEntry(ProductChange change, Product product) {
+        this.seq = change.getSeq();
+        this.productId = change.getProductId();
+        this.operation = change.getOperation();
+        this.changedAt = change.getChangedAt();
+        this.name = product == null ? null : product.getName();
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public ProductChange.Operation getOperation() {
+        return operation;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    /**
+     * @return the current name, {@code null} if the product does not exist (anymore)
+     */
+    public String getName() {
+        return name;
+    }
+}
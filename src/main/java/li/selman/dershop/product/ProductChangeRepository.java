@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Read access to the product change log and its compaction.
+ *
+ * @author Hasan Selman Kara
+ */
+public interface ProductChangeRepository extends Repository<ProductChange, Long> {
+
+    /**
+     * Pages through the changes after the given sequence number, pass the first page of the {@link Pageable}.
+     *
+     * @param since    exclusive lower bound, the sequence number of the last change the client has seen
+     * @param pageable the page size, the page number must be {@code 0}
+     * @return the following changes in commit order
+     */
+    Slice<ProductChange> findBySeqGreaterThanOrderBySeqAsc(long since, Pageable pageable);
+
+    /**
+     * Deletes up to this sequence number may have been removed by {@link #expireOlderThan(Instant)}.
+     *
+     * @return the compaction horizon, {@code 0} as long as nothing expired
+     */
+    @Query(value = "select seq from product_change_horizon where id = 1", nativeQuery = true)
+    long findHorizon();
+
+    /**
+     * The position of a reader which has seen all changes so far. It is never behind the horizon, even if the newest
+     * change was an expired delete.
+     *
+     * @return the sequence number of the newest change, respectively the horizon if it is ahead
+     */
+    @Query(value = "select greatest(coalesce(max(seq), 0), (select seq from product_change_horizon where id = 1))"
+        + " from product_change", nativeQuery = true)
+    long findLatestSeq();
+
+    /**
+     * @param seq the sequence number of a change
+     * @return the time the change was committed, empty if there is no such change (anymore)
+     */
+    @Query("select c.changedAt from ProductChange c where c.seq = :seq")
+    Optional<Instant> findChangedAt(@Param("seq") long seq);
+
+    /**
+     * The version of the catalog, read by primary key from the newest change instead of aggregating the products.
+     *
+     * @return the current version of the catalog
+     */
+    default CatalogVersion findCatalogVersion() {
+        long seq = findLatestSeq();
+        return new CatalogVersion(seq, findChangedAt(seq).orElse(null));
+    }
+
+    /**
+     * Removes every change which is followed by a newer change of the same product. A client reading past the newer
+     * change learns about the product anyway, so the cursor semantics are not affected.
+     *
+     * @return the number of removed changes
+     */
+    @Modifying
+    @Query(value = "delete from product_change c where exists (select 1 from product_change n"
+        + " where n.product_id = c.product_id and n.seq > c.seq)", nativeQuery = true)
+    int deleteSuperseded();
+
+    /**
+     * Removes the deletes recorded before the cutoff and moves the horizon past them. A client whose cursor is
+     * behind the horizon may have missed a delete.
+     *
+     * @param cutoff the oldest delete to keep
+     * @return the number of updated horizon rows
+     */
+    @Modifying
+    @Query(value = "with removed as (delete from product_change where operation = 'D' and changed_at < :cutoff"
+        + " returning seq)"
+        + " update product_change_horizon set seq = greatest(seq, (select coalesce(max(seq), 0) from removed))"
+        + " where id = 1", nativeQuery = true)
+    int expireOlderThan(@Param("cutoff") Instant cutoff);
+}
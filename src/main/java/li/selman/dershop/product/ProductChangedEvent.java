@@ -0,0 +1,79 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+/**
+ * Published whenever a product is inserted, updated or deleted through JPA.
+ * <p>
+ * Listen with {@code @TransactionalEventListener} to only observe committed changes. Bulk statements and changes made
+ * outside of the application bypass this event, the in-memory read models are therefore rebuilt from the database on
+ * startup.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class ProductChangedEvent {
+
+    /**
+     * The kind of change.
+     */
+    public enum Kind {
+        /**
+         * The product was inserted or updated.
+         */
+        SAVED,
+        /**
+         * The product was deleted.
+         */
+        DELETED
+    }
+
+    private final Kind kind;
+    private final Product product;
+
+    private ProductChangedEvent(Kind kind, Product product) {
+        this.kind = kind;
+        this.product = product;
+    }
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(Kind.SAVED, product);
+    }
+
+    public static ProductChangedEvent deleted(Product product) {
+        return new ProductChangedEvent(Kind.DELETED, product);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The state of the product as written to the database, respectively the last state of a deleted product.
+     *
+     * @return the product
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangedEvent{"
+            + "kind=" + kind
+            + ", product=" + product
+            + '}';
+    }
+}
@@ -15,54 +15,369 @@
  */
 package li.selman.dershop.product;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
-
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import li.selman.dershop.app.cache.SingleFlightTimeoutException;
+import li.selman.dershop.app.persistence.TableStatistics;
+import li.selman.dershop.app.persistence.TotalCount;
+import li.selman.dershop.app.security.AuthoritiesConstants;
+import li.selman.dershop.app.security.SecurityUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RepresentationModel;
 import org.springframework.hateoas.server.ExposesResourceFor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
 
 /**
  * @author Hasan Selman Kara
  */
 @RestController
 @ExposesResourceFor(Product.class)
-@RequestMapping("/api/products")
+@RequestMapping(ProductController.PATH)
 public class ProductController {
 
+    static final String PATH = "/api/products";
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final String TEXT_CSV_VALUE = "text/csv";
+    static final String SUMMARY_VIEW = "summary";
+    private static final String PRODUCT_TABLE = "product";
+
     private final ProductRepository productRepo;
+    private final CatalogVersionTracker catalogVersion;
+    private final ProductExporter productExporter;
+    private final ProductImporter productImporter;
+    private final ProductLookup productLookup;
+    private final ProductTrendService trendService;
+    private final RecentlyViewedService recentlyViewedService;
+    private final ProductLinks productLinks;
+    private final ProductProperties properties;
+    private final TableStatistics tableStatistics;
+    private final ObjectMapper objectMapper;
 
-    ProductController(ProductRepository productRepo) {
+    ProductController(ProductRepository productRepo, CatalogVersionTracker catalogVersion,
+                      ProductExporter productExporter, ProductImporter productImporter, ProductLookup productLookup,
+                      ProductTrendService trendService, RecentlyViewedService recentlyViewedService,
+                      ProductLinks productLinks, ProductProperties properties, TableStatistics tableStatistics,
+                      ObjectMapper objectMapper) {
         this.productRepo = productRepo;
+        this.catalogVersion = catalogVersion;
+        this.productExporter = productExporter;
+        this.productImporter = productImporter;
+        this.productLookup = productLookup;
+        this.trendService = trendService;
+        this.recentlyViewedService = recentlyViewedService;
+        this.productLinks = productLinks;
+        this.properties = properties;
+        this.tableStatistics = tableStatistics;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Lists the catalog page by page using keyset pagination.
+     *
+     * <p>
+     * The ETag and Last-Modified headers are derived from the {@link CatalogVersion}, so a conditional request is
+     * answered with {@code 304 Not Modified} before any product is loaded.
+     *
+     * @param cursor  the opaque cursor taken from the {@code next} link of the previous page, absent for the first page
+     * @param size    the page size, capped at {@value #MAX_PAGE_SIZE}
+     * @param total   {@code none}, {@code approximate} or {@code exact}, see {@link TotalCount}
+     * @param fields  the comma separated fields to render per product, all if absent
+     * @param links   {@code none}, {@code minimal} or {@code full}, the links to render per product
+     * @param request the current request, to evaluate the conditional headers
+     * @return one page of products, with a {@code next} link as long as there are more products
+     */
     @GetMapping
-    ResponseEntity<CollectionModel<EntityModel<Product>>> findAll() {
-        List<EntityModel<Product>> products = StreamSupport.stream(productRepo.findAll().spliterator(), false)
-            .map(product -> EntityModel.of(product,
-                linkTo(methodOn(ProductController.class).findById(product.getId())).withSelfRel(),
-                linkTo(methodOn(ProductController.class).findAll()).withRel("products")))
+    ResponseEntity<CollectionModel<RepresentationModel<?>>> findAll(
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(name = "total", defaultValue = "none") String total,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links,
+        ServletWebRequest request
+    ) {
+        Optional<ProductCursor> position = positionOf(cursor);
+        Optional<TotalCount> totalCount = TotalCount.parse(total);
+        Optional<ProductShape> shape = ProductShape.parse(fields, links);
+        if (position.isEmpty() || totalCount.isEmpty() || shape.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (isCatalogNotModified(request)) {
+            // The status and the headers are already set
+            return null;
+        }
+
+        int pageSize = pageSizeOf(size);
+        Slice<Product> page = productRepo.findByIdGreaterThanOrderByIdAsc(
+            position.get().getLastId(), PageRequest.of(0, pageSize));
+
+        ProductLinks.RequestLinks requestLinks = productLinks.forCurrentRequest();
+        List<RepresentationModel<?>> products = page.stream()
+            .map(product -> shape.get().toModel(product, requestLinks))
             .collect(Collectors.toList());
+        Long lastId = page.hasNext() ? page.getContent().get(page.getNumberOfElements() - 1).getId() : null;
+        return ResponseEntity.ok()
+            .headers(totalHeaders(totalCount.get()))
+            .body(pageModel(products, lastId, requestLinks, cursor, pageSize, null));
+    }
+
+    /**
+     * Lean variant of {@link #findAll(String, int, String, String, String, ServletWebRequest)}, meant for listings
+     * which only show the names.
+     * <p>
+     * The products are read as {@link ProductSummary} projections and serialized as they are, i.e. without
+     * per-product links. Paging and conditional requests work the same as for the full listing.
+     *
+     * @param cursor  the opaque cursor taken from the {@code next} link of the previous page, absent for the first page
+     * @param size    the page size, capped at {@value #MAX_PAGE_SIZE}
+     * @param total   {@code none}, {@code approximate} or {@code exact}, see {@link TotalCount}
+     * @param request the current request, to evaluate the conditional headers
+     * @return one page of product summaries, with a {@code next} link as long as there are more products
+     */
+    @GetMapping(params = "view=" + SUMMARY_VIEW)
+    ResponseEntity<CollectionModel<ProductSummary>> findAllSummaries(
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(name = "total", defaultValue = "none") String total,
+        ServletWebRequest request
+    ) {
+        Optional<ProductCursor> position = positionOf(cursor);
+        Optional<TotalCount> totalCount = TotalCount.parse(total);
+        if (position.isEmpty() || totalCount.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (isCatalogNotModified(request)) {
+            // The status and the headers are already set
+            return null;
+        }
+
+        int pageSize = pageSizeOf(size);
+        Slice<ProductSummary> page = productRepo.findSummariesByIdGreaterThan(
+            position.get().getLastId(), PageRequest.of(0, pageSize));
+
+        Long lastId = page.hasNext() ? page.getContent().get(page.getNumberOfElements() - 1).getId() : null;
+        return ResponseEntity.ok()
+            .headers(totalHeaders(totalCount.get()))
+            .body(pageModel(page.getContent(), lastId, productLinks.forCurrentRequest(), cursor, pageSize,
+                SUMMARY_VIEW));
+    }
+
+    /**
+     * Finds several products at once, e.g. for the cart and the wishlist.
+     * <p>
+     * The products are taken from the near cache, the misses are loaded with a single query. Unknown ids are answered
+     * with a {@link MissingProduct} at their position.
+     *
+     * @param ids    the ids of the products, at most {@code dershop.product.max-batch-lookup-size}
+     * @param fields the comma separated fields to render per product, all if absent
+     * @param links  {@code none}, {@code minimal} or {@code full}, the links to render per product
+     * @return the products in the order of the ids
+     */
+    @GetMapping(params = "ids")
+    ResponseEntity<CollectionModel<RepresentationModel<?>>> findAllById(
+        @RequestParam("ids") List<Long> ids,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links
+    ) {
+        Optional<ProductShape> shape = ProductShape.parse(fields, links);
+        if (ids.isEmpty() || ids.size() > properties.getMaxBatchLookupSize() || ids.contains(null)
+            || shape.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<Long, Product> found = productLookup.findAllById(ids);
+        ProductLinks.RequestLinks requestLinks = productLinks.forCurrentRequest();
+        List<RepresentationModel<?>> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = found.get(id);
+            products.add(product == null
+                ? EntityModel.of(new MissingProduct(id))
+                : shape.get().toModel(product, requestLinks));
+        }
+        Link self = Link.of(UriComponentsBuilder.fromUriString(requestLinks.collectionHref())
+            .queryParam("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(",")))
+            .toUriString());
+        return ResponseEntity.ok(CollectionModel.of(products, self));
+    }
+
+    private static Optional<ProductCursor> positionOf(String cursor) {
+        return cursor == null
+            ? Optional.of(ProductCursor.after(Long.MIN_VALUE))
+            : ProductCursor.decode(cursor);
+    }
+
+    private static int pageSizeOf(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private HttpHeaders totalHeaders(TotalCount totalCount) {
+        return totalCount.headers(productRepo::count, () -> tableStatistics.estimateRowCount(PRODUCT_TABLE));
+    }
+
+    private boolean isCatalogNotModified(ServletWebRequest request) {
+        CatalogVersion version = catalogVersion.current();
+        return checkNotModified(request, version.getETag(), version.getLastModifiedMillis());
+    }
+
+    /**
+     * Evaluates the conditional headers of a read. The same URL is rendered as JSON, CBOR or Smile, hence the entity
+     * tag is qualified with the requested representation and the response varies by {@code Accept}. Accept headers
+     * spelled differently get different tags even if they select the same representation, which only costs a miss.
+     *
+     * @param request      the current request
+     * @param eTag         the entity tag of the state, without the quotes
+     * @param lastModified the time of the last modification in epoch milliseconds, {@code -1} if unknown
+     * @return whether the request is answered with {@code 304 Not Modified}, the status and the headers are set then
+     */
+    static boolean checkNotModified(ServletWebRequest request, String eTag, long lastModified) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String representation = accept == null ? "" : "-" + Integer.toHexString(accept.hashCode());
+        return request.checkNotModified(eTag + representation, lastModified);
+    }
 
-        return ResponseEntity.ok(
-            CollectionModel.of(products,
-                linkTo(methodOn(ProductController.class).findAll()).withSelfRel()));
+    /**
+     * @param lastId the id of the last product of the page, {@code null} if there is no next page
+     */
+    private static <T> CollectionModel<T> pageModel(List<T> content, Long lastId, ProductLinks.RequestLinks links,
+                                                    String cursor, int pageSize, String view) {
+        CollectionModel<T> model = CollectionModel.of(content, pageLink(links, cursor, pageSize, view).withSelfRel());
+        if (lastId != null) {
+            String nextCursor = ProductCursor.after(lastId).encode();
+            model.add(pageLink(links, nextCursor, pageSize, view).withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
     }
 
+    private static Link pageLink(ProductLinks.RequestLinks links, String cursor, int size, String view) {
+        return Link.of(UriComponentsBuilder.fromUriString(links.collectionHref())
+            .queryParamIfPresent("view", Optional.ofNullable(view))
+            .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+            .queryParam("size", size)
+            .toUriString());
+    }
+
+    /**
+     * Bulk export of the whole catalog as newline delimited JSON.
+     * <p>
+     * The response is streamed while the products are read from the database, use it instead of paging through
+     * {@link #findAll(String, int, String, String, String, ServletWebRequest)} for feeds and other batch jobs.
+     *
+     * @param response the response the products are written to
+     * @throws IOException if the client aborts the download
+     */
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"");
+        productExporter.exportAsNdjson(response.getOutputStream());
+    }
+
+    /**
+     * Bulk import of new products from semicolon separated values or newline delimited JSON.
+     * <p>
+     * The upload is parsed while it is received and written in batches. Failed batches are skipped and listed in the
+     * report, the products of the other batches are imported nevertheless.
+     *
+     * @param contentType the format of the upload
+     * @param request     the request carrying the upload
+     * @return the report of the import
+     * @throws IOException if the upload cannot be read
+     */
+    @PostMapping(value = "import", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAnyAuthority(\"" + AuthoritiesConstants.ADMIN + "\", \""
+        + AuthoritiesConstants.PRODUCT_INFORMATION_MANAGER + "\")")
+    ResponseEntity<ProductImportReport> importProducts(
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+        HttpServletRequest request
+    ) throws IOException {
+        InputStream in = request.getInputStream();
+        try (ProductImportSource source = contentType.isCompatibleWith(MediaType.valueOf(TEXT_CSV_VALUE))
+            ? ProductImportSource.csv(in)
+            : ProductImportSource.ndjson(in, objectMapper)) {
+            return ResponseEntity.ok(productImporter.importProducts(source));
+        }
+    }
+
+    /**
+     * Finds a single product.
+     * <p>
+     * The ETag is derived from the id and the version of the product, a conditional request is answered with
+     * {@code 304 Not Modified} without serializing the product. Concurrent requests missing the near cache for the
+     * same product share one database call, a request which waited for it in vain is answered with
+     * {@code 503 Service Unavailable}. Every request counts as a view for the trending products and for the recently
+     * viewed products of the user.
+     *
+     * @param id      the id of the product
+     * @param fields  the comma separated fields to render, all if absent
+     * @param links   {@code none}, {@code minimal} or {@code full}, the links to render
+     * @param request the current request, to evaluate the conditional headers
+     * @return the product
+     */
     @GetMapping("{id}")
-    ResponseEntity<EntityModel<Product>> findById(@PathVariable("id") Long id) {
-        return productRepo.findById(id)
-            .map(EntityModel::of)
-            .map(ResponseEntity::ok)
-            .orElse(ResponseEntity.notFound().build());
+    ResponseEntity<RepresentationModel<?>> findById(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links,
+        ServletWebRequest request
+    ) {
+        Optional<ProductShape> shape = ProductShape.parse(fields, links);
+        if (shape.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Product> product;
+        try {
+            product = productLookup.findById(id);
+        } catch (SingleFlightTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        if (product.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        trendService.recordView(id);
+        SecurityUtils.getCurrentUserLogin().ifPresent(login -> recentlyViewedService.recordView(login, id));
+        if (checkNotModified(request, eTagOf(product.get()), product.get().getLastModifiedDate().toEpochMilli())) {
+            // The status and the headers are already set
+            return null;
+        }
+        if (shape.get().isFull()) {
+            // The ProductResourceProcessor adds the image link
+            return ResponseEntity.ok(EntityModel.of(product.get()));
+        }
+        return ResponseEntity.ok(shape.get().toModel(product.get(), productLinks.forCurrentRequest()));
+    }
+
+    private static String eTagOf(Product product) {
+        return product.getId() + "-" + product.getVersion();
     }
 
 }
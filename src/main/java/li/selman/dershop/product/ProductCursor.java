@@ -0,0 +1,78 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque cursor used for the keyset pagination of the product catalog.
+ * <p>
+ * The cursor encodes the id of the last product of a page. Clients must treat it as an opaque token, which allows us
+ * to seek on additional sort keys in the future without breaking them.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductCursor {
+
+    private static final String VERSION_PREFIX = "v1:";
+
+    private final long lastId;
+
+    private ProductCursor(long lastId) {
+        this.lastId = lastId;
+    }
+
+    static ProductCursor after(long lastId) {
+        return new ProductCursor(lastId);
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param token the opaque token as sent by the client
+     * @return the cursor or empty, if the token is malformed
+     */
+    static Optional<ProductCursor> decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(VERSION_PREFIX)) {
+                return Optional.empty();
+            }
+            return Optional.of(new ProductCursor(Long.parseLong(decoded.substring(VERSION_PREFIX.length()))));
+        } catch (IllegalArgumentException e) {
+            // Also covers the NumberFormatException
+            return Optional.empty();
+        }
+    }
+
+    long getLastId() {
+        return lastId;
+    }
+
+    String encode() {
+        byte[] raw = (VERSION_PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductCursor{"
+            + "lastId=" + lastId
+            + '}';
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes the full product catalog as newline delimited JSON (NDJSON), in the format the import reads. Fields without
+ * a value are left out.
+ * <p>
+ * The products are streamed from the database and written one by one through Jackson's streaming
+ * {@link JsonGenerator}, hence the heap usage does not depend on the size of the catalog.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductExporter {
+
+    /**
+     * Flush the generator every n products, so the client starts receiving data right away.
+     */
+    private static final int FLUSH_INTERVAL = ProductRepository.STREAM_FETCH_SIZE;
+
+    private final ProductRepository productRepo;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    ProductExporter(ProductRepository productRepo, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.productRepo = productRepo;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes one JSON object per product and line to the given stream.
+     *
+     * @param out the target, which is flushed but not closed
+     * @return the number of exported products
+     * @throws IOException if writing to {@code out} fails
+     */
+    @Transactional(readOnly = true)
+    public long exportAsNdjson(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepo.streamAllByOrderByIdAsc();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Every line ends with its own newline, Jackson's default separator would indent all but the first
+            generator.setRootValueSeparator(null);
+            Iterator<Product> it = products.iterator();
+            while (it.hasNext()) {
+                Product product = it.next();
+                writeProduct(generator, product);
+                // The stream is read-only, but the persistence context would still hold on to every entity
+                entityManager.detach(product);
+                count++;
+                if (count % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        log.debug("Exported {} products", count);
+        return count;
+    }
+
+    private static void writeProduct(JsonGenerator generator, Product product) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", product.getId());
+        generator.writeStringField("name", product.getName());
+        if (product.getPrice() != null) {
+            generator.writeNumberField("price", product.getPrice());
+        }
+        if (product.getCategory() != null) {
+            generator.writeStringField("category", product.getCategory());
+        }
+        if (product.getBrand() != null) {
+            generator.writeStringField("brand", product.getBrand());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
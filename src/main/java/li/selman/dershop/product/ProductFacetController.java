@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductFacetController {
+
+    private final ProductFacetService facetService;
+    private final ProductLookup productLookup;
+    private final ProductLinks productLinks;
+
+    ProductFacetController(ProductFacetService facetService, ProductLookup productLookup, ProductLinks productLinks) {
+        this.facetService = facetService;
+        this.productLookup = productLookup;
+        this.productLinks = productLinks;
+    }
+
+    /**
+     * Filters the catalog by category, brand and price range and counts the values of these facets.
+     * <p>
+     * A product matches if it has any of the given values of every given facet. The count of a value is the number of
+     * products it would match together with the filters of the other facets. The page is answered from memory, only
+     * the products of the page are loaded, through the near cache. The cursor is a position in the in-memory index,
+     * hence the pages of a listing running across a restart may overlap slightly.
+     *
+     * @param categories the categories
+     * @param brands     the brands
+     * @param prices     the price ranges as returned in the {@code price} facet, e.g. {@code 5-10} or {@code 50-}
+     * @param cursor     the opaque cursor taken from the {@code next} link of the previous page, absent for the first
+     *                   page
+     * @param size       the page size, capped at {@value ProductController#MAX_PAGE_SIZE}
+     * @param fields     the comma separated fields to render per product, all if absent
+     * @param links      {@code none}, {@code minimal} or {@code full}, the links to render per product
+     * @return one page of the matching products with the total number of matches and the facet counts
+     */
+    @GetMapping("filter")
+    ResponseEntity<FacetedProducts> filter(
+        @RequestParam(name = "category", required = false) List<String> categories,
+        @RequestParam(name = "brand", required = false) List<String> brands,
+        @RequestParam(name = "price", required = false) List<String> prices,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "size", defaultValue = "" + ProductController.DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(name = "fields", required = false) String fields,
+        @RequestParam(name = "links", required = false) String links
+    ) {
+        Optional<ProductCursor> position = cursor == null
+            ? Optional.of(ProductCursor.after(-1))
+            : ProductCursor.decode(cursor).filter(decoded -> decoded.getLastId() >= -1
+                && decoded.getLastId() < Integer.MAX_VALUE);
+        Optional<ProductShape> shape = ProductShape.parse(fields, links);
+        if (position.isEmpty() || shape.isEmpty()
+            || prices != null && !prices.stream().allMatch(facetService::isPriceRange)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<ProductFacetIndex.Facet, Set<String>> selected = new EnumMap<>(ProductFacetIndex.Facet.class);
+        putIfPresent(selected, ProductFacetIndex.Facet.CATEGORY, categories);
+        putIfPresent(selected, ProductFacetIndex.Facet.BRAND, brands);
+        putIfPresent(selected, ProductFacetIndex.Facet.PRICE, prices);
+        int pageSize = Math.max(1, Math.min(size, ProductController.MAX_PAGE_SIZE));
+        int from = (int) position.get().getLastId() + 1;
+        ProductFacetIndex.Result result = facetService.filter(selected, from, pageSize);
+
+        Map<Long, Product> found = productLookup.findAllById(result.getProductIds());
+        ProductLinks.RequestLinks requestLinks = productLinks.forCurrentRequest();
+        List<RepresentationModel<?>> products = new ArrayList<>(found.size());
+        for (Long id : result.getProductIds()) {
+            // Deleted since the page was taken from the index
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(shape.get().toModel(product, requestLinks));
+            }
+        }
+
+        FacetedProducts page = new FacetedProducts(products, result.getTotal(), result.getFacets());
+        page.add(pageLink(requestLinks, selected, cursor, pageSize).withSelfRel());
+        if (result.getNextFrom() >= 0) {
+            String nextCursor = ProductCursor.after(result.getNextFrom() - 1L).encode();
+            page.add(pageLink(requestLinks, selected, nextCursor, pageSize).withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    private static void putIfPresent(Map<ProductFacetIndex.Facet, Set<String>> selected,
+                                     ProductFacetIndex.Facet facet, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selected.put(facet, new LinkedHashSet<>(values));
+        }
+    }
+
+    private static Link pageLink(ProductLinks.RequestLinks links, Map<ProductFacetIndex.Facet, Set<String>> selected,
+                                 String cursor, int size) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(links.collectionHref()).path("/filter");
+        selected.forEach((facet, values) -> uri.queryParam(facet.getJsonName(), values.toArray()));
+        return Link.of(uri
+            .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+            .queryParam("size", size)
+            .encode()
+            .toUriString());
+    }
+}
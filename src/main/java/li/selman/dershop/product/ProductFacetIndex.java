@@ -0,0 +1,367 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap index over the category, the brand and the price range of the products.
+ * <p>
+ * Every product is assigned a dense document ordinal, which it keeps when it is updated. Each value of a facet holds
+ * the ordinals of its products in a {@link CompressedBitmap}. A filter is the intersection of the unions of the
+ * selected values per facet, and the count of a value is the size of its intersection with the filters of the other
+ * facets. Hence selecting a category narrows the brands and prices, but still counts the other categories.
+ * <p>
+ * The index is safe for concurrent use, any number of queries run in parallel to a single writer.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductFacetIndex {
+
+    /**
+     * The attributes a product can be filtered by.
+     */
+    enum Facet {
+        CATEGORY,
+        BRAND,
+        PRICE;
+
+        private final String jsonName = name().toLowerCase(Locale.ROOT);
+
+        String getJsonName() {
+            return jsonName;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<BigDecimal> priceBounds;
+    private final Map<Facet, FacetValues> facets = new EnumMap<>(Facet.class);
+    private final CompressedBitmap live = new CompressedBitmap();
+    private final LongIntHashMap ordinalsById;
+    private long[] productIds;
+
+    /**
+     * The next free ordinal.
+     */
+    private int maxOrdinal;
+
+    /**
+     * @param priceBounds  the upper bounds of the price ranges in ascending order, the last range is open
+     * @param expectedSize the expected number of products
+     */
+    ProductFacetIndex(List<BigDecimal> priceBounds, int expectedSize) {
+        int capacity = Math.max(expectedSize, 16);
+        this.priceBounds = List.copyOf(priceBounds);
+        this.ordinalsById = new LongIntHashMap(capacity);
+        this.productIds = new long[capacity];
+        for (Facet facet : Facet.values()) {
+            facets.put(facet, new FacetValues(capacity));
+        }
+        // The price ranges are counted in ascending order, including the empty ones
+        FacetValues prices = facets.get(Facet.PRICE);
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : this.priceBounds) {
+            prices.idOf(label(lower) + "-" + label(upper));
+            lower = upper;
+        }
+        prices.idOf(label(lower) + "-");
+    }
+
+    /**
+     * The number of indexed products.
+     *
+     * @return the number of live documents
+     */
+    int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return live.cardinality();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the product to the index, respectively replaces its previous values.
+     *
+     * @param productId the id of the product
+     * @param category  the category, {@code null} if none
+     * @param brand     the brand, {@code null} if none
+     * @param price     the price, {@code null} if none
+     */
+    void index(long productId, String category, String brand, BigDecimal price) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int ordinal = ordinalsById.get(productId);
+            if (ordinal == LongIntHashMap.NO_VALUE) {
+                ordinal = maxOrdinal++;
+                if (ordinal == productIds.length) {
+                    productIds = Arrays.copyOf(productIds, ordinal * 2);
+                }
+                productIds[ordinal] = productId;
+                ordinalsById.put(productId, ordinal);
+            }
+            live.add(ordinal);
+            facets.get(Facet.CATEGORY).set(ordinal, category);
+            facets.get(Facet.BRAND).set(ordinal, brand);
+            facets.get(Facet.PRICE).set(ordinal, price == null ? null : priceRangeOf(price));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the product from the index, if present. Its ordinal is not reused.
+     *
+     * @param productId the id of the product
+     */
+    void remove(long productId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int ordinal = ordinalsById.get(productId);
+            if (ordinal != LongIntHashMap.NO_VALUE) {
+                live.remove(ordinal);
+                facets.values().forEach(values -> values.set(ordinal, null));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param facet the facet
+     * @param value a value as returned by {@link #filter(Map, int, int, int)}
+     * @return whether the facet knows the value, the price ranges are known even if no product is in them
+     */
+    boolean isKnown(Facet facet, String value) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return facets.get(facet).idsByValue.containsKey(value);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching the filters and counts the values of every facet.
+     *
+     * @param selected  the selected values by facet, a product matches if it has any of the selected values of every
+     *                  facet
+     * @param from      the position to start at, {@code 0} for the first page
+     * @param limit     the maximum number of products
+     * @param maxValues the maximum number of category and brand values, the price ranges are always all counted
+     * @return the products in ascending ordinal order and the facet counts
+     */
+    Result filter(Map<Facet, Set<String>> selected, int from, int limit, int maxValues) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Map<Facet, CompressedBitmap> unions = new EnumMap<>(Facet.class);
+            selected.forEach((facet, values) -> {
+                if (!values.isEmpty()) {
+                    unions.put(facet, facets.get(facet).union(values));
+                }
+            });
+
+            CompressedBitmap matches = Optional.ofNullable(intersection(unions, null)).orElse(live);
+            List<Long> ids = new ArrayList<>(limit);
+            int ordinal = matches.next(from);
+            for (; ordinal >= 0 && ids.size() < limit; ordinal = matches.next(ordinal + 1)) {
+                ids.add(productIds[ordinal]);
+            }
+            int nextFrom = ordinal;
+
+            Map<String, List<ProductFacetCount>> counts = new LinkedHashMap<>();
+            for (Facet facet : Facet.values()) {
+                CompressedBitmap others = intersection(unions, facet);
+                Set<String> selectedValues = selected.getOrDefault(facet, Set.of());
+                int max = facet == Facet.PRICE ? Integer.MAX_VALUE : maxValues;
+                counts.put(facet.getJsonName(), facets.get(facet).count(others, selectedValues, max));
+            }
+            return new Result(ids, nextFrom, matches.cardinality(), counts);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return the intersection of the unions of all facets but the excluded one, {@code null} if there is nothing to
+     * intersect, i.e. all products match
+     */
+    private static CompressedBitmap intersection(Map<Facet, CompressedBitmap> unions, Facet excluded) {
+        CompressedBitmap result = null;
+        for (Map.Entry<Facet, CompressedBitmap> union : unions.entrySet()) {
+            if (union.getKey() != excluded) {
+                result = result == null ? union.getValue() : result.and(union.getValue());
+            }
+        }
+        return result;
+    }
+
+    private String priceRangeOf(BigDecimal price) {
+        int range = 0;
+        while (range < priceBounds.size() && price.compareTo(priceBounds.get(range)) >= 0) {
+            range++;
+        }
+        return facets.get(Facet.PRICE).values.get(range);
+    }
+
+    private static String label(BigDecimal amount) {
+        return amount.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * The values of one facet. The values are numbered in the order they are first seen and never removed, each
+     * ordinal has at most one value.
+     */
+    private static final class FacetValues {
+
+        private static final int NO_VALUE = -1;
+
+        private final Map<String, Integer> idsByValue = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<CompressedBitmap> bitmaps = new ArrayList<>();
+        private int[] valueIdsByOrdinal;
+
+        FacetValues(int capacity) {
+            valueIdsByOrdinal = new int[capacity];
+            Arrays.fill(valueIdsByOrdinal, NO_VALUE);
+        }
+
+        int idOf(String value) {
+            return idsByValue.computeIfAbsent(value, newValue -> {
+                values.add(newValue);
+                bitmaps.add(new CompressedBitmap());
+                return values.size() - 1;
+            });
+        }
+
+        void set(int ordinal, String value) {
+            if (ordinal >= valueIdsByOrdinal.length) {
+                int oldLength = valueIdsByOrdinal.length;
+                valueIdsByOrdinal = Arrays.copyOf(valueIdsByOrdinal, Math.max(oldLength * 2, ordinal + 1));
+                Arrays.fill(valueIdsByOrdinal, oldLength, valueIdsByOrdinal.length, NO_VALUE);
+            }
+            int previous = valueIdsByOrdinal[ordinal];
+            int current = value == null || value.isBlank() ? NO_VALUE : idOf(value);
+            if (previous != current) {
+                if (previous != NO_VALUE) {
+                    bitmaps.get(previous).remove(ordinal);
+                }
+                if (current != NO_VALUE) {
+                    bitmaps.get(current).add(ordinal);
+                }
+                valueIdsByOrdinal[ordinal] = current;
+            }
+        }
+
+        CompressedBitmap union(Set<String> selected) {
+            CompressedBitmap union = new CompressedBitmap();
+            for (String value : selected) {
+                Integer id = idsByValue.get(value);
+                if (id != null) {
+                    union = union.or(bitmaps.get(id));
+                }
+            }
+            return union;
+        }
+
+        /**
+         * @param filter   the products to count, {@code null} for all
+         * @param selected the selected values, counted even if no product matches
+         * @param max      the maximum number of values, the most frequent ones and the selected ones are kept
+         * @return the counts, ordered by descending count if values were dropped
+         */
+        List<ProductFacetCount> count(CompressedBitmap filter, Set<String> selected, int max) {
+            List<ProductFacetCount> counts = new ArrayList<>();
+            for (int id = 0; id < values.size(); id++) {
+                CompressedBitmap bitmap = bitmaps.get(id);
+                int count = filter == null ? bitmap.cardinality() : filter.andCardinality(bitmap);
+                if (count > 0 || max == Integer.MAX_VALUE || selected.contains(values.get(id))) {
+                    counts.add(new ProductFacetCount(values.get(id), count));
+                }
+            }
+            if (counts.size() <= max) {
+                return counts;
+            }
+            counts.sort(Comparator.comparingInt(ProductFacetCount::getCount).reversed()
+                .thenComparing(ProductFacetCount::getValue));
+            List<ProductFacetCount> top = new ArrayList<>(counts.subList(0, max));
+            for (ProductFacetCount count : counts.subList(max, counts.size())) {
+                if (selected.contains(count.getValue())) {
+                    top.add(count);
+                }
+            }
+            return top;
+        }
+    }
+
+    /**
+     * One page of matching products and the facet counts over all matching products.
+     */
+    static final class Result {
+
+        private final List<Long> productIds;
+        private final int nextFrom;
+        private final int total;
+        private final Map<String, List<ProductFacetCount>> facets;
+
+        Result(List<Long> productIds, int nextFrom, int total, Map<String, List<ProductFacetCount>> facets) {
+            this.productIds = productIds;
+            this.nextFrom = nextFrom;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        List<Long> getProductIds() {
+            return productIds;
+        }
+
+        /**
+         * @return the position of the next page, {@code -1} if this is the last page
+         */
+        int getNextFrom() {
+            return nextFrom;
+        }
+
+        int getTotal() {
+            return total;
+        }
+
+        Map<String, List<ProductFacetCount>> getFacets() {
+            return facets;
+        }
+    }
+}
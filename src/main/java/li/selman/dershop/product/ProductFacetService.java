@@ -0,0 +1,136 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Faceted filtering over the category, the brand and the price, answered from the in-memory
+ * {@link ProductFacetIndex}.
+ * <p>
+ * The index is built from the database once the application is ready and kept up to date with the committed
+ * {@link ProductChangedEvent}s. Neither the filters nor the facet counts touch the database, per request
+ * {@code GROUP BY} queries would not keep up with the catalog size and the number of filter combinations.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductFacetService {
+
+    private final ProductRepository productRepo;
+    private final EntityManager entityManager;
+    private final ProductProperties properties;
+
+    private final Object rebuildLock = new Object();
+    private volatile ProductFacetIndex index;
+
+    /**
+     * Changes committed while a rebuild is running, they are replayed on the new index. Guarded by the rebuild lock.
+     */
+    private List<ProductChangedEvent> changesDuringRebuild;
+
+    ProductFacetService(ProductRepository productRepo, EntityManager entityManager, ProductProperties properties) {
+        this.productRepo = productRepo;
+        this.entityManager = entityManager;
+        this.properties = properties;
+        this.index = new ProductFacetIndex(properties.getPriceFacetBounds(), 0);
+    }
+
+    /**
+     * Finds the products matching the filters and counts the values of every facet.
+     *
+     * @param selected the selected values by facet
+     * @param from     the position to start at, {@code 0} for the first page
+     * @param limit    the maximum number of products
+     * @return one page of the matching products and the facet counts
+     */
+    ProductFacetIndex.Result filter(Map<ProductFacetIndex.Facet, Set<String>> selected, int from, int limit) {
+        return index.filter(selected, from, limit, properties.getMaxFacetValues());
+    }
+
+    /**
+     * @return whether the price range is one of the configured ones
+     */
+    boolean isPriceRange(String range) {
+        return index.isKnown(ProductFacetIndex.Facet.PRICE, range);
+    }
+
+    /**
+     * Builds a new index from the database and swaps it in, filters are served by the old index in the meantime.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (rebuildLock) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            ProductFacetIndex fresh = new ProductFacetIndex(properties.getPriceFacetBounds(), index.size());
+            try (Stream<Product> products = productRepo.streamAllByOrderByIdAsc()) {
+                products.forEach(product -> {
+                    index(fresh, product);
+                    entityManager.detach(product);
+                });
+            }
+            synchronized (rebuildLock) {
+                changesDuringRebuild.forEach(change -> apply(fresh, change));
+                index = fresh;
+            }
+            long tookMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Indexed {} products for the facets in {} ms", fresh.size(), tookMillis);
+        } finally {
+            synchronized (rebuildLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (rebuildLock) {
+            apply(index, event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private static void apply(ProductFacetIndex target, ProductChangedEvent event) {
+        Product product = event.getProduct();
+        if (event.getKind() == ProductChangedEvent.Kind.DELETED) {
+            target.remove(product.getId());
+        } else {
+            index(target, product);
+        }
+    }
+
+    private static void index(ProductFacetIndex target, Product product) {
+        target.index(product.getId(), product.getCategory(), product.getBrand(), product.getPrice());
+    }
+}
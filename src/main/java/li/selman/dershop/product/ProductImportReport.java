@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import, see {@link ProductImporter}.
+ *
+ * @author Hasan Selman Kara
+ */
+public final class ProductImportReport {
+
+    private long imported;
+    private long rejected;
+    private long durationMillis;
+    private String abortedBecause;
+    private final List<FailedBatch> failedBatches = new ArrayList<>();
+
+    /**
+     * @return the number of products written to the database
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * @return the number of records skipped because of a missing or too long name
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the imported products per second
+     */
+    public long getThroughput() {
+        return durationMillis == 0 ? imported : imported * 1000 / durationMillis;
+    }
+
+    /**
+     * @return why the input could not be read to its end, {@code null} if it was
+     */
+    public String getAbortedBecause() {
+        return abortedBecause;
+    }
+
+    /**
+     * @return the batches rolled back, their records are not imported
+     */
+    public List<FailedBatch> getFailedBatches() {
+        return Collections.unmodifiableList(failedBatches);
+    }
+
+    void batchImported(int count) {
+        imported += count;
+    }
+
+    void recordRejected() {
+        rejected++;
+    }
+
+    void batchFailed(FailedBatch failedBatch) {
+        failedBatches.add(failedBatch);
+    }
+
+    void aborted(String reason) {
+        abortedBecause = reason;
+    }
+
+    void finished(long tookMillis) {
+        durationMillis = tookMillis;
+    }
+
+    /**
+     * A batch which could not be written.
+     */
+    public static final class FailedBatch {
+
+        private final long firstRecord;
+        private final long lastRecord;
+        private final String error;
+
+        FailedBatch(long firstRecord, long lastRecord, String error) {
+            this.firstRecord = firstRecord;
+            this.lastRecord = lastRecord;
+            this.error = error;
+        }
+
+        /**
+         * @return the number of the first record of the batch, counting from 1
+         */
+        public long getFirstRecord() {
+            return firstRecord;
+        }
+
+        public long getLastRecord() {
+            return lastRecord;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the product records of an import one at a time, without buffering the whole upload.
+ *
+ * @author Hasan Selman Kara
+ */
+interface ProductImportSource extends Closeable {
+
+    /**
+     * Reads the next record.
+     *
+     * @return the next record, or {@code null} at the end of the input
+     * @throws IOException if the input cannot be read or is malformed beyond recovery
+     */
+    Row next() throws IOException;
+
+    /**
+     * Semicolon separated values like the Liquibase fake data, with an optional header naming the {@code name},
+     * {@code price}, {@code category} and {@code brand} columns, further columns like {@code id} are ignored. Without
+     * a header the last column is taken as the name.
+     *
+     * @param in the upload, UTF-8 encoded
+     * @return the source
+     */
+    static ProductImportSource csv(InputStream in) {
+        return new CsvSource(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Newline delimited JSON objects with a {@code name} and the optional {@code price}, {@code category} and
+     * {@code brand} fields, as written by the export.
+     *
+     * @param in           the upload, UTF-8 encoded
+     * @param objectMapper the mapper to parse the objects with
+     * @return the source
+     * @throws IOException if the input cannot be read
+     */
+    static ProductImportSource ndjson(InputStream in, ObjectMapper objectMapper) throws IOException {
+        return new NdjsonSource(objectMapper.readerFor(JsonNode.class).readValues(in));
+    }
+
+    /** Parses the CSV line by line. */
+    final class CsvSource implements ProductImportSource {
+
+        private static final char SEPARATOR = ';';
+
+        private final BufferedReader reader;
+        private boolean firstLine = true;
+        private int nameColumn = -1;
+        private int priceColumn = -1;
+        private int categoryColumn = -1;
+        private int brandColumn = -1;
+
+        private CsvSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line = reader.readLine();
+            while (line != null && (line.isBlank() || firstLine && isHeader(line))) {
+                firstLine = false;
+                line = reader.readLine();
+            }
+            firstLine = false;
+            if (line == null) {
+                return null;
+            }
+            List<String> columns = split(line);
+            String name = nameColumn < 0 || nameColumn >= columns.size()
+                ? columns.get(columns.size() - 1).trim()
+                : columns.get(nameColumn).trim();
+            return new Row(name, column(columns, priceColumn), column(columns, categoryColumn),
+                column(columns, brandColumn));
+        }
+
+        private boolean isHeader(String line) {
+            List<String> columns = new ArrayList<>();
+            for (String column : split(line)) {
+                columns.add(column.trim().toLowerCase(Locale.ROOT));
+            }
+            if (!columns.contains("name")) {
+                return false;
+            }
+            nameColumn = columns.indexOf("name");
+            priceColumn = columns.indexOf("price");
+            categoryColumn = columns.indexOf("category");
+            brandColumn = columns.indexOf("brand");
+            return true;
+        }
+
+        /** @return the trimmed column, {@code null} if it is missing or empty */
+        private static String column(List<String> columns, int index) {
+            if (index < 0 || index >= columns.size() || columns.get(index).isBlank()) {
+                return null;
+            }
+            return columns.get(index).trim();
+        }
+
+        /** Splits at the separators outside of double quotes, doubled quotes within quotes are unescaped. */
+        private static List<String> split(String line) {
+            List<String> columns = new ArrayList<>();
+            StringBuilder column = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i++);
+                if (c == '"' && quoted && i < line.length() && line.charAt(i) == '"') {
+                    column.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == SEPARATOR && !quoted) {
+                    columns.add(column.toString());
+                    column.setLength(0);
+                } else {
+                    column.append(c);
+                }
+            }
+            columns.add(column.toString());
+            return columns;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /** Parses one JSON object after the other from the stream. */
+    final class NdjsonSource implements ProductImportSource {
+
+        private final MappingIterator<JsonNode> records;
+
+        private NdjsonSource(MappingIterator<JsonNode> records) {
+            this.records = records;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (!records.hasNextValue()) {
+                return null;
+            }
+            JsonNode product = records.nextValue();
+            JsonNode name = product.path("name");
+            JsonNode price = product.path("price");
+            return new Row(name.isTextual() ? name.textValue() : "",
+                price.isNumber() ? price.decimalValue().toPlainString() : text(price),
+                text(product.path("category")), text(product.path("brand")));
+        }
+
+        private static String text(JsonNode node) {
+            return node.isTextual() ? node.textValue() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            records.close();
+        }
+    }
+
+    /**
+     * A record of the import as read, not validated yet.
+     */
+    final class Row {
+
+        private final String name;
+        private final String price;
+        private final String category;
+        private final String brand;
+
+        Row(String name, String price, String category, String brand) {
+            this.name = name;
+            this.price = price;
+            this.category = category;
+            this.brand = brand;
+        }
+
+        /** @return the name, which may be blank */
+        String getName() {
+            return name;
+        }
+
+        /** @return the price as written in the input, or {@code null} */
+        String getPrice() {
+            return price;
+        }
+
+        /** @return the category, or {@code null} */
+        String getCategory() {
+            return category;
+        }
+
+        /** @return the brand, or {@code null} */
+        String getBrand() {
+            return brand;
+        }
+    }
+}
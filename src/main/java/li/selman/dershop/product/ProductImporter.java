@@ -0,0 +1,167 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk import of products, e.g. when onboarding a supplier.
+ * <p>
+ * The records are read one by one from the {@link ProductImportSource} and written in batches of
+ * {@link ProductProperties#getImportBatchSize()}, one transaction per batch. Hibernate sends the inserts of a batch
+ * as JDBC batches and takes the ids from the pooled {@code product_sequence}, i.e. a batch costs a handful of round
+ * trips instead of two per product. The persistence context is cleared after every batch, so neither the memory nor
+ * the cost of a batch grow with the import. A batch which cannot be written is rolled back and reported, the import
+ * goes on with the next one.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductImporter {
+
+    /**
+     * Length of the {@code product.name} column.
+     */
+    private static final int MAX_NAME_LENGTH = 255;
+
+    /**
+     * Length of the {@code product.category} and {@code product.brand} columns.
+     */
+    private static final int MAX_LABEL_LENGTH = 100;
+
+    /**
+     * Digits before the decimal point the {@code product.price} column holds.
+     */
+    private static final int MAX_PRICE_INTEGER_DIGITS = 10;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductProperties properties;
+
+    ProductImporter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                    ProductProperties properties) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    /**
+     * Imports all records of the source.
+     *
+     * @param source the records, which are read to the end but not closed
+     * @return how many products were imported and which batches failed
+     */
+    public ProductImportReport importProducts(ProductImportSource source) {
+        long start = System.nanoTime();
+        ProductImportReport report = new ProductImportReport();
+        int batchSize = Math.max(1, properties.getImportBatchSize());
+        List<Product> batch = new ArrayList<>(batchSize);
+        long record = 0;
+        long firstRecordOfBatch = 1;
+        try {
+            for (ProductImportSource.Row row = source.next(); row != null; row = source.next()) {
+                record++;
+                Product product = toProduct(row);
+                if (product == null) {
+                    report.recordRejected();
+                } else {
+                    batch.add(product);
+                }
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, firstRecordOfBatch, record, report, start);
+                    batch.clear();
+                    firstRecordOfBatch = record + 1;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Aborting the product import after record {}: {}", record, e.getMessage());
+            report.aborted("Unreadable input after record " + record + ": " + e.getMessage());
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, firstRecordOfBatch, record, report, start);
+        }
+        report.finished(millisSince(start));
+        log.info("Imported {} products in {} ms ({} products/s), {} rejected, {} batches failed",
+            report.getImported(), report.getDurationMillis(), report.getThroughput(), report.getRejected(),
+            report.getFailedBatches().size());
+        return report;
+    }
+
+    /**
+     * @return the product of the record, {@code null} if the record is invalid
+     */
+    private static Product toProduct(ProductImportSource.Row row) {
+        String name = row.getName().trim();
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH || !fitsLabel(row.getCategory())
+            || !fitsLabel(row.getBrand())) {
+            return null;
+        }
+        BigDecimal price = null;
+        if (row.getPrice() != null) {
+            try {
+                price = new BigDecimal(row.getPrice().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (price.signum() < 0 || price.precision() - price.scale() > MAX_PRICE_INTEGER_DIGITS) {
+                return null;
+            }
+        }
+        return new Product(name, price, row.getCategory(), row.getBrand());
+    }
+
+    private static boolean fitsLabel(String label) {
+        return label == null || label.length() <= MAX_LABEL_LENGTH;
+    }
+
+    private void writeBatch(List<Product> products, long firstRecord, long lastRecord, ProductImportReport report,
+                            long start) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                products.forEach(entityManager::persist);
+                // With open-in-view the persistence context outlives the transaction and would keep every product,
+                // growing the heap and the dirty checking of every following batch
+                entityManager.flush();
+                entityManager.clear();
+            });
+            report.batchImported(products.size());
+            long elapsed = Math.max(1, millisSince(start));
+            log.info("Imported records {} to {}, {} products so far ({} products/s)",
+                firstRecord, lastRecord, report.getImported(), report.getImported() * 1000 / elapsed);
+        } catch (DataAccessException | TransactionException | PersistenceException e) {
+            String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            log.warn("Skipping records {} to {} of the product import: {}", firstRecord, lastRecord, error);
+            report.batchFailed(new ProductImportReport.FailedBatch(firstRecord, lastRecord, error));
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.hateoas.server.mvc.BasicLinkBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Renders the links of the product resources.
+ * <p>
+ * {@code WebMvcLinkBuilder.linkTo(methodOn(...))} creates a proxy, intercepts the invocation and inspects the
+ * controller mappings by reflection for every single link. For a page of products this dominates the rendering. This
+ * factory resolves the mappings of the {@link ProductController} and the image URL once at startup, rendering a link
+ * then boils down to a string concatenation. The output is identical to the one of {@code WebMvcLinkBuilder}.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+public class ProductLinks {
+
+    public static final LinkRelation PRODUCTS_REL = LinkRelation.of("products");
+    public static final LinkRelation IMAGE_REL = LinkRelation.of(ProductResourceProcessor.IMAGE_REL);
+
+    private static final String ID_VARIABLE = "{id}";
+
+    private final String collectionPath;
+    private final String itemPathPrefix;
+    private final String itemPathSuffix;
+    private final String imageUrlPrefix;
+
+    ProductLinks(ProductProperties properties) {
+        this.collectionPath = mappingOf(ProductController.class);
+
+        Method findById = Arrays.stream(ProductController.class.getDeclaredMethods())
+            .filter(method -> method.getName().equals("findById"))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("ProductController#findById is missing"));
+        String itemPath = join(collectionPath, mappingOf(findById));
+        int idIndex = itemPath.indexOf(ID_VARIABLE);
+        this.itemPathPrefix = itemPath.substring(0, idIndex);
+        this.itemPathSuffix = itemPath.substring(idIndex + ID_VARIABLE.length());
+
+        String imageBaseUrl = properties.getImageBaseUrl();
+        this.imageUrlPrefix = imageBaseUrl.endsWith("/") ? imageBaseUrl : imageBaseUrl + "/";
+    }
+
+    /**
+     * Binds the links to the base URI (scheme, host, port and servlet mapping) of the current request.
+     * <p>
+     * Resolving the base URI is the only part of the link creation which is not free, so obtain the
+     * {@link RequestLinks} once per request and reuse them for all products of a response.
+     *
+     * @return the links for the current request
+     */
+    public RequestLinks forCurrentRequest() {
+        return new RequestLinks(BasicLinkBuilder.linkToCurrentMapping().toString());
+    }
+
+    /**
+     * The image of a product is served by the CDN, hence the link does not depend on the current request.
+     *
+     * @param productId the id of the product
+     * @return the image link of the product
+     */
+    public Link image(long productId) {
+        return Link.of(imageUrlPrefix + productId, IMAGE_REL);
+    }
+
+    private static String mappingOf(AnnotatedElement element) {
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(element, RequestMapping.class);
+        if (mapping == null || mapping.path().length == 0) {
+            return "";
+        }
+        return mapping.path()[0];
+    }
+
+    private static String join(String parent, String child) {
+        if (child.isEmpty()) {
+            return parent;
+        }
+        return parent + (child.startsWith("/") ? child : "/" + child);
+    }
+
+    /**
+     * Product links resolved against the base URI of a request.
+     */
+    public final class RequestLinks {
+
+        private final String collectionHref;
+        private final String itemHrefPrefix;
+        private final Link productsLink;
+
+        private RequestLinks(String baseUri) {
+            this.collectionHref = baseUri + collectionPath;
+            this.itemHrefPrefix = baseUri + itemPathPrefix;
+            this.productsLink = Link.of(collectionHref, PRODUCTS_REL);
+        }
+
+        public String collectionHref() {
+            return collectionHref;
+        }
+
+        /**
+         * The link to all products, the same instance is returned on every invocation.
+         *
+         * @return the link with the relation {@code products}
+         */
+        public Link products() {
+            return productsLink;
+        }
+
+        public Link self(long productId) {
+            return Link.of(itemHrefPrefix + productId + itemPathSuffix, IanaLinkRelations.SELF);
+        }
+
+        public Link image(long productId) {
+            return ProductLinks.this.image(productId);
+        }
+    }
+}
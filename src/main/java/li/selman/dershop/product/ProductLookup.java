@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import li.selman.dershop.app.cache.SingleFlight;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+/**
+ * Looks up products by id. The {@link ProductSnapshotService} is asked first, then the near cache
+ * {@link ProductRepository#BY_ID_CACHE}.
+ * <p>
+ * The cache holds detached copies and every caller gets a copy of its own, hence a caller changing its product, e.g.
+ * merging a request into it, neither affects the cache nor concurrent callers.
+ * <p>
+ * Concurrent misses of the same product share a single database call, so an expired entry of a popular product or
+ * a cold cache after a deploy do not send a herd of identical queries to the database. The misses of a multi-get are
+ * loaded with a single {@code IN} query.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+public class ProductLookup {
+
+    private final ProductRepository productRepo;
+    private final ProductSnapshotService snapshotService;
+    private final Cache cache;
+    private final SingleFlight<Long, Optional<Product>> loads;
+
+    ProductLookup(ProductRepository productRepo, ProductSnapshotService snapshotService, CacheManager cacheManager,
+                  ProductProperties properties, MeterRegistry meterRegistry) {
+        this.productRepo = productRepo;
+        this.snapshotService = snapshotService;
+        this.cache = cacheManager.getCache(ProductRepository.BY_ID_CACHE);
+        this.loads = new SingleFlight<>("products", properties.getLoadCoalescingTimeout(), meterRegistry);
+    }
+
+    /**
+     * Finds a product, concurrent callers missing the cache for the same id wait for one another.
+     *
+     * @param id the id of the product
+     * @return the product, empty if there is none
+     * @throws li.selman.dershop.app.cache.SingleFlightTimeoutException if the load of another caller did not complete
+     *                                                                  within {@code load-coalescing-timeout}
+     */
+    public Optional<Product> findById(long id) {
+        Optional<Product> snapshot = snapshotService.find(id);
+        if (snapshot.isPresent()) {
+            return snapshot;
+        }
+        Product cached = cachedCopy(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // The callers waiting for the same load share its result, each of them takes a copy
+        return loads.load(id, () -> load(id)).map(Product::copy);
+    }
+
+    private Product cachedCopy(long id) {
+        Product cached = cache == null ? null : cache.get(id, Product.class);
+        return cached == null ? null : cached.copy();
+    }
+
+    private Optional<Product> load(long id) {
+        Optional<Product> product = productRepo.findById(id).map(Product::copy);
+        if (cache != null) {
+            product.ifPresent(found -> cache.put(id, found));
+        }
+        return product;
+    }
+
+    /**
+     * Finds the products with the given ids.
+     *
+     * @param ids the ids, duplicates are looked up once
+     * @return the found products by id, absent products are missing in the map
+     */
+    public Map<Long, Product> findAllById(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>(distinctIds.size() * 2);
+        List<Long> misses = new ArrayList<>(distinctIds.size());
+        for (Long id : distinctIds) {
+            Product cached = snapshotService.find(id).orElseGet(() -> cachedCopy(id));
+            if (cached == null) {
+                misses.add(id);
+            } else {
+                found.put(id, cached);
+            }
+        }
+        if (!misses.isEmpty()) {
+            for (Product product : productRepo.findAllById(misses)) {
+                found.put(product.getId(), product);
+                if (cache != null) {
+                    cache.put(product.getId(), product.copy());
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the product catalog.
+ *
+ * @author Hasan Selman Kara
+ */
+@ConfigurationProperties(prefix = "dershop.product")
+public class ProductProperties {
+
+    /**
+     * Base URL of the CDN serving the product images. The product id is appended as last path segment.
+     */
+    private String imageBaseUrl = "http://www-dershop-com.cloudinary.com/product-image";
+
+    /**
+     * Number of typeahead suggestions precomputed per prefix, i.e. the most a suggest request returns.
+     */
+    private int maxSuggestions = 10;
+
+    /**
+     * How long to collect product changes before the typeahead suggestions are rebuilt.
+     */
+    private Duration suggestRebuildDelay = Duration.ofSeconds(5);
+
+    /**
+     * Number of products written per transaction by the bulk import.
+     */
+    private int importBatchSize = 1000;
+
+    /**
+     * Maximum number of ids accepted by one multi-get request.
+     */
+    private int maxBatchLookupSize = 100;
+
+    /**
+     * How long a request waits for the load of the same product by a concurrent request before it gives up.
+     */
+    private Duration loadCoalescingTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How long the change feed keeps deletes, clients syncing less often have to start over with the whole catalog.
+     */
+    private Duration changeRetention = Duration.ofDays(7);
+
+    /**
+     * Upper bounds of the price ranges counted by the price facet, in ascending order. The last range is open.
+     */
+    private List<BigDecimal> priceFacetBounds = List.of(
+        BigDecimal.valueOf(2), BigDecimal.valueOf(5), BigDecimal.valueOf(10), BigDecimal.valueOf(20),
+        BigDecimal.valueOf(50));
+
+    /**
+     * Maximum number of category and brand values returned per facet, the most frequent ones.
+     */
+    private int maxFacetValues = 20;
+
+    /**
+     * Directory of the memory-mapped catalog snapshot serving the product lookups, none disables the snapshot. Has to
+     * survive restarts, e.g. a volume, otherwise every start rebuilds the snapshot from the database.
+     */
+    private String snapshotDirectory;
+
+    /**
+     * How often the snapshot reads the changes of the other instances from the change feed.
+     */
+    private Duration snapshotPollInterval = Duration.ofSeconds(5);
+
+    /**
+     * How often the snapshot is written anew from the database.
+     */
+    private Duration snapshotRebuildInterval = Duration.ofHours(6);
+
+    /**
+     * How long the catalog version answering the conditional requests is kept in memory, it is read again afterwards
+     * to notice the changes of the other instances.
+     */
+    private Duration catalogVersionMaxAge = Duration.ofSeconds(1);
+
+    /**
+     * Memory held by the encoded responses of the product listings, {@code 0} disables the response cache.
+     */
+    private DataSize responseCacheSize = DataSize.ofMegabytes(32);
+
+    /**
+     * Smallest cached response which is also kept gzip compressed.
+     */
+    private DataSize responseCompressionThreshold = DataSize.ofKilobytes(1);
+
+    /**
+     * Threads serving the product reads with the async-reads profile, best the size of the connection pool.
+     */
+    private int asyncReadThreads = 10;
+
+    /**
+     * Product reads waiting for a thread with the async-reads profile, further requests are rejected.
+     */
+    private int asyncReadQueueCapacity = 1000;
+
+    public String getImageBaseUrl() {
+        return imageBaseUrl;
+    }
+
+    public void setImageBaseUrl(String imageBaseUrl) {
+        this.imageBaseUrl = imageBaseUrl;
+    }
+
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    public void setMaxSuggestions(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    public Duration getSuggestRebuildDelay() {
+        return suggestRebuildDelay;
+    }
+
+    public void setSuggestRebuildDelay(Duration suggestRebuildDelay) {
+        this.suggestRebuildDelay = suggestRebuildDelay;
+    }
+
+    public int getImportBatchSize() {
+        return importBatchSize;
+    }
+
+    public void setImportBatchSize(int importBatchSize) {
+        this.importBatchSize = importBatchSize;
+    }
+
+    public int getMaxBatchLookupSize() {
+        return maxBatchLookupSize;
+    }
+
+    public void setMaxBatchLookupSize(int maxBatchLookupSize) {
+        this.maxBatchLookupSize = maxBatchLookupSize;
+    }
+
+    public Duration getLoadCoalescingTimeout() {
+        return loadCoalescingTimeout;
+    }
+
+    public void setLoadCoalescingTimeout(Duration loadCoalescingTimeout) {
+        this.loadCoalescingTimeout = loadCoalescingTimeout;
+    }
+
+    public Duration getChangeRetention() {
+        return changeRetention;
+    }
+
+    public void setChangeRetention(Duration changeRetention) {
+        this.changeRetention = changeRetention;
+    }
+
+    public List<BigDecimal> getPriceFacetBounds() {
+        return priceFacetBounds;
+    }
+
+    public void setPriceFacetBounds(List<BigDecimal> priceFacetBounds) {
+        this.priceFacetBounds = priceFacetBounds;
+    }
+
+    public int getMaxFacetValues() {
+        return maxFacetValues;
+    }
+
+    public void setMaxFacetValues(int maxFacetValues) {
+        this.maxFacetValues = maxFacetValues;
+    }
+
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    public Duration getSnapshotPollInterval() {
+        return snapshotPollInterval;
+    }
+
+    public void setSnapshotPollInterval(Duration snapshotPollInterval) {
+        this.snapshotPollInterval = snapshotPollInterval;
+    }
+
+    public Duration getSnapshotRebuildInterval() {
+        return snapshotRebuildInterval;
+    }
+
+    public void setSnapshotRebuildInterval(Duration snapshotRebuildInterval) {
+        this.snapshotRebuildInterval = snapshotRebuildInterval;
+    }
+
+    public Duration getCatalogVersionMaxAge() {
+        return catalogVersionMaxAge;
+    }
+
+    public void setCatalogVersionMaxAge(Duration catalogVersionMaxAge) {
+        this.catalogVersionMaxAge = catalogVersionMaxAge;
+    }
+
+    public DataSize getResponseCacheSize() {
+        return responseCacheSize;
+    }
+
+    public void setResponseCacheSize(DataSize responseCacheSize) {
+        this.responseCacheSize = responseCacheSize;
+    }
+
+    public DataSize getResponseCompressionThreshold() {
+        return responseCompressionThreshold;
+    }
+
+    public void setResponseCompressionThreshold(DataSize responseCompressionThreshold) {
+        this.responseCompressionThreshold = responseCompressionThreshold;
+    }
+
+    public int getAsyncReadThreads() {
+        return asyncReadThreads;
+    }
+
+    public void setAsyncReadThreads(int asyncReadThreads) {
+        this.asyncReadThreads = asyncReadThreads;
+    }
+
+    public int getAsyncReadQueueCapacity() {
+        return asyncReadQueueCapacity;
+    }
+
+    public void setAsyncReadQueueCapacity(int asyncReadQueueCapacity) {
+        this.asyncReadQueueCapacity = asyncReadQueueCapacity;
+    }
+}
@@ -15,10 +15,118 @@
  */
 package li.selman.dershop.product;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 /**
  * @author Hasan Selman Kara
  */
 public interface ProductRepository extends PagingAndSortingRepository<Product, Long> {
+
+    /**
+     * Number of rows the JDBC driver fetches per round trip when streaming the catalog.
+     */
+    int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Name of the near cache holding detached copies of the products by id, filled by {@link ProductLookup}.
+     * <p>
+     * {@link #findById(Long)} is not cached: Spring Data REST merges an update into the instance it finds before
+     * saving it, a cached instance would keep an update which failed to save. All writes below go through this
+     * repository, including the ones of the Spring Data REST endpoints, and evict the affected entries.
+     */
+    String BY_ID_CACHE = "products";
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, key = "#result.id")
+    <S extends Product> S save(S entity);
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, allEntries = true)
+    <S extends Product> Iterable<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, key = "#p0.id")
+    void delete(Product entity);
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, allEntries = true)
+    void deleteAll(Iterable<? extends Product> entities);
+
+    @Override
+    @CacheEvict(cacheNames = BY_ID_CACHE, allEntries = true)
+    void deleteAll();
+
+    /**
+     * Keyset (seek) pagination over the primary key.
+     * <p>
+     * Always pass the first page of the {@link Pageable} (e.g. {@code PageRequest.of(0, size)}), the position in the
+     * catalog is given by {@code afterId} alone. That way the database seeks on the primary key index instead of
+     * skipping {@code OFFSET} rows, hence deep pages cost the same as the first one. The returned {@link Slice}
+     * fetches one additional row to determine whether there is a next page, no {@code count(*)} is issued.
+     *
+     * @param afterId  exclusive lower bound, i.e. the id of the last product of the previous page
+     * @param pageable the page size, the page number must be {@code 0}
+     * @return the products following {@code afterId} in ascending id order
+     */
+    Slice<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /**
+     * Same keyset pagination as {@link #findByIdGreaterThanOrderByIdAsc(Long, Pageable)}, but reads
+     * {@link ProductSummary} projections instead of managed entities.
+     *
+     * @param afterId  exclusive lower bound, i.e. the id of the last product of the previous page
+     * @param pageable the page size, the page number must be {@code 0}
+     * @return the product summaries following {@code afterId} in ascending id order
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new li.selman.dershop.product.ProductSummary(p.id, p.name) from Product p"
+        + " where p.id > :afterId order by p.id")
+    Slice<ProductSummary> findSummariesByIdGreaterThan(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Streams the whole catalog in ascending id order.
+     * <p>
+     * The rows are fetched lazily through a server side cursor, {@value #STREAM_FETCH_SIZE} at a time, and the entities
+     * are loaded read-only, i.e. Hibernate does not keep a snapshot for dirty checking. The caller has to run inside a
+     * (read-only) transaction, must close the stream and should detach the consumed entities to keep the persistence
+     * context from growing.
+     *
+     * @return a lazily populated stream of all products
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAllByOrderByIdAsc();
+
+    /**
+     * Loads every distinct product name, e.g. to build an in-memory lookup structure.
+     *
+     * @return the distinct, non-null product names in no particular order
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select distinct p.name from Product p where p.name is not null")
+    List<String> findAllDistinctNames();
 }
@@ -15,11 +15,8 @@
  */
 package li.selman.dershop.product;
 
-import java.util.Map;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.hateoas.EntityModel;
-import org.springframework.hateoas.Link;
-import org.springframework.hateoas.UriTemplate;
 import org.springframework.hateoas.server.RepresentationModelProcessor;
 import org.springframework.stereotype.Component;
 
@@ -31,19 +28,19 @@ public class ProductResourceProcessor implements RepresentationModelProcessor<En
 
     public static final String IMAGE_REL = "image";
 
+    private final ProductLinks productLinks;
+
+    ProductResourceProcessor(ProductLinks productLinks) {
+        this.productLinks = productLinks;
+    }
+
     @Override
     public @NotNull EntityModel<Product> process(EntityModel<Product> resource) {
         if (resource.getContent() == null) {
             return resource;
         }
 
-        resource.add(Link.of(geProductImageUrl(resource.getContent()), IMAGE_REL));
+        resource.add(productLinks.image(resource.getContent().getId()));
         return resource;
     }
-
-    String geProductImageUrl(Product product) {
-        UriTemplate template = UriTemplate.of("http://www-dershop-com.cloudinary.com/product-image/{id}");
-        Map<String, String> uriVariables = Map.of("id", product.getId().toString());
-        return template.expand(uriVariables).toString();
-    }
 }
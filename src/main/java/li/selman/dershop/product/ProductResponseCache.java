@@ -0,0 +1,279 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Caches the encoded responses of the product listings, i.e. of every {@code GET /api/products} but the multi-get.
+ * <p>
+ * A listing only depends on the {@link CatalogVersion}, the query parameters, the requested representation and the
+ * base URI of the links. Together they key the final bytes of a {@code 200 OK} response and its headers, a response
+ * of at least {@code response-compression-threshold} is kept gzip compressed as well. A hit is written as is, with
+ * neither a product loaded, a link rendered nor a document serialized. Writes change the catalog version and thus the
+ * key, the cache is also cleared on every committed {@link ProductChangedEvent} to free the memory early. The version
+ * is taken from the {@link CatalogVersionTracker}, a hit does not touch the database at all.
+ * <p>
+ * The filter runs behind the security filters, an unauthenticated request never reaches the cache.
+ *
+ * @author Hasan Selman Kara
+ */
+@Component
+public class ProductResponseCache extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+    private static final String KEY_ATTRIBUTE = ProductResponseCache.class.getName() + ".KEY";
+
+    /**
+     * Headers which make up the base URI of the links, next to the scheme.
+     */
+    private static final List<String> BASE_URI_HEADERS = List.of(HttpHeaders.HOST, "Forwarded", "X-Forwarded-Host",
+        "X-Forwarded-Port", "X-Forwarded-Proto", "X-Forwarded-Prefix");
+
+    /**
+     * Headers written by the cache itself respectively not to be shared between clients.
+     */
+    private static final List<String> UNCACHED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+        HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.SET_COOKIE);
+
+    private final CatalogVersionTracker catalogVersion;
+    private final UrlPathHelper pathHelper = new UrlPathHelper();
+    private final int compressionThreshold;
+    private final Cache<String, CachedResponse> responses;
+
+    ProductResponseCache(CatalogVersionTracker catalogVersion, ProductProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.catalogVersion = catalogVersion;
+        this.compressionThreshold = (int) properties.getResponseCompressionThreshold().toBytes();
+        this.responses = Caffeine.newBuilder()
+            .maximumWeight(properties.getResponseCacheSize().toBytes())
+            .weigher((String key, CachedResponse response) -> key.length() + response.size())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "productResponses");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+            || !ProductController.PATH.equals(pathHelper.getPathWithinApplication(request))
+            || request.getParameter("ids") != null;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // The response of an asynchronous request is only complete at the end of its async dispatch
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // The response is the wrapper the initial dispatch handed to the asynchronous processing
+            chain.doFilter(request, response);
+            complete(request, WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class));
+            return;
+        }
+
+        // Changes committed after this point may already be in the response, it is cached under an outdated key then
+        CatalogVersion version = catalogVersion.current();
+        String key = keyOf(request, version);
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null) {
+            // Only valid requests are cached, hence the conditional headers are checked the way the controller does
+            ServletWebRequest webRequest = new ServletWebRequest(request, response);
+            if (!ProductController.checkNotModified(webRequest, version.getETag(), version.getLastModifiedMillis())) {
+                cached.writeHeaders(response);
+                cached.writeBody(response, acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+            }
+            return;
+        }
+
+        request.setAttribute(KEY_ATTRIBUTE, key);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        complete(request, wrapper);
+    }
+
+    /**
+     * Caches and writes a rendered response, unless the request continues asynchronously.
+     */
+    private void complete(HttpServletRequest request, ContentCachingResponseWrapper wrapper) throws IOException {
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        Object key = request.getAttribute(KEY_ATTRIBUTE);
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || key == null) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        CachedResponse fresh = CachedResponse.of(wrapper, compressionThreshold);
+        responses.put((String) key, fresh);
+        // The headers are already on the response, the body was kept by the wrapper
+        fresh.writeBody((HttpServletResponse) wrapper.getResponse(),
+            acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        responses.invalidateAll();
+    }
+
+    private static String keyOf(HttpServletRequest request, CatalogVersion version) {
+        StringBuilder key = new StringBuilder(128)
+            .append(version.getETag()).append('\n')
+            .append(request.getScheme());
+        for (String header : BASE_URI_HEADERS) {
+            key.append('\n').append(nullToEmpty(request.getHeader(header)));
+        }
+        key.append('\n').append(nullToEmpty(request.getHeader(HttpHeaders.ACCEPT))).append('\n');
+        // The order of the parameters does not matter, the order of the values of one parameter does
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+            key.append(name).append('=').append(String.join(",", values)).append('&'));
+        return key.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @param acceptEncoding the {@code Accept-Encoding} header of the request
+     * @return whether the client accepts gzip, a quality of zero declines it
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(GZIP) || name.equals("*")) {
+                return Arrays.stream(parts).skip(1).map(String::trim).noneMatch(ProductResponseCache::isZeroQuality);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String parameter) {
+        return parameter.matches("[qQ]\\s*=\\s*0(\\.0{0,3})?");
+    }
+
+    /**
+     * The encoded bytes of a response and its headers.
+     */
+    private static final class CachedResponse {
+
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final byte[] gzipBody;
+
+        private CachedResponse(String contentType, Map<String, List<String>> headers, byte[] body, byte[] gzipBody) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.gzipBody = gzipBody;
+        }
+
+        static CachedResponse of(ContentCachingResponseWrapper response, int compressionThreshold) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : response.getHeaderNames()) {
+                if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                    headers.putIfAbsent(name, new ArrayList<>(response.getHeaders(name)));
+                }
+            }
+            byte[] body = response.getContentAsByteArray();
+            byte[] gzipBody = body.length >= compressionThreshold ? gzip(body) : null;
+            return new CachedResponse(response.getContentType(), headers, body, gzipBody);
+        }
+
+        int size() {
+            return body.length + (gzipBody == null ? 0 : gzipBody.length);
+        }
+
+        void writeHeaders(HttpServletResponse response) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            headers.forEach((name, values) -> writeHeader(response, name, values));
+        }
+
+        private static void writeHeader(HttpServletResponse response, String name, Collection<String> values) {
+            boolean first = true;
+            for (String value : values) {
+                // Headers the filters in front already set, e.g. the security ones, are replaced instead of repeated
+                if (first) {
+                    response.setHeader(name, value);
+                } else {
+                    response.addHeader(name, value);
+                }
+                first = false;
+            }
+        }
+
+        void writeBody(HttpServletResponse response, boolean acceptsGzip) throws IOException {
+            byte[] bytes = body;
+            if (gzipBody != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (acceptsGzip) {
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+                    bytes = gzipBody;
+                }
+            }
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return compressed.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductSearchController {
+
+    private final ProductSearchService searchService;
+    private final ProductSuggestService suggestService;
+    private final ProductLinks productLinks;
+
+    ProductSearchController(ProductSearchService searchService, ProductSuggestService suggestService,
+                            ProductLinks productLinks) {
+        this.searchService = searchService;
+        this.suggestService = suggestService;
+        this.productLinks = productLinks;
+    }
+
+    /**
+     * Full-text search over the product names.
+     *
+     * @param query the search terms, a product matches if its name contains any of them
+     * @param size  the maximum number of hits, capped at {@value ProductController#MAX_PAGE_SIZE}
+     * @return the matching products ordered by relevance
+     */
+    @GetMapping("search")
+    ResponseEntity<CollectionModel<EntityModel<ProductSearchHit>>> search(
+        @RequestParam("q") String query,
+        @RequestParam(name = "size", defaultValue = "" + ProductController.DEFAULT_PAGE_SIZE) int size
+    ) {
+        int limit = Math.max(1, Math.min(size, ProductController.MAX_PAGE_SIZE));
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+
+        List<EntityModel<ProductSearchHit>> hits = searchService.search(query, limit).stream()
+            .map(hit -> EntityModel.of(hit, links.self(hit.getId())))
+            .collect(Collectors.toList());
+
+        Link self = Link.of(UriComponentsBuilder.fromUriString(links.collectionHref())
+            .path("/search")
+            .queryParam("q", query)
+            .queryParam("size", limit)
+            .encode()
+            .toUriString());
+        return ResponseEntity.ok(CollectionModel.of(hits, self));
+    }
+
+    /**
+     * Typeahead for the storefront search box.
+     *
+     * @param prefix what the user typed so far, matched against the start of the product names
+     * @param size   the maximum number of suggestions, capped at {@code dershop.product.max-suggestions}
+     * @return the product names starting with the prefix, shorter names first
+     */
+    @GetMapping("suggest")
+    ResponseEntity<List<String>> suggest(
+        @RequestParam("prefix") String prefix,
+        @RequestParam(name = "size", defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(suggestService.suggest(prefix, Math.max(1, size)));
+    }
+}
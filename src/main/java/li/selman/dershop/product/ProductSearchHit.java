@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * A product matching a search query, as answered from the in-memory index.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "product", collectionRelation = "products")
+public final class ProductSearchHit {
+
+    private final long id;
+    private final String name;
+    private final float score;
+
+    ProductSearchHit(long id, String name, float score) {
+        this.id = id;
+        this.name = name;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The BM25 relevance of the product for the query, higher is better.
+     *
+     * @return the score
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSearchHit{"
+            + "id=" + id
+            + ", name='" + name + '\''
+            + ", score=" + score
+            + '}';
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the product names, ranked with Okapi BM25.
+ * <p>
+ * Every product is assigned a dense document ordinal. The posting list of a term holds the ordinals and the term
+ * frequencies in two growing {@code int} arrays, i.e. the index does not box a single value. Updates append a new
+ * document and mark the old one as deleted, the postings are compacted once too many deleted documents accumulated.
+ * <p>
+ * The index is safe for concurrent use, any number of searches run in parallel to a single writer.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductSearchIndex {
+
+    /**
+     * Term frequency saturation of BM25.
+     */
+    static final float K1 = 1.2f;
+
+    /**
+     * Document length normalization of BM25.
+     */
+    static final float B = 0.75f;
+
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final LongIntHashMap ordinalsById;
+    private final BitSet deleted = new BitSet();
+
+    private long[] productIds;
+    private String[] names;
+    private int[] lengths;
+
+    /**
+     * The next free ordinal.
+     */
+    private int maxOrdinal;
+    private int liveDocs;
+    private long liveLength;
+
+    ProductSearchIndex(int expectedSize) {
+        int capacity = Math.max(expectedSize, 16);
+        this.ordinalsById = new LongIntHashMap(capacity);
+        this.productIds = new long[capacity];
+        this.names = new String[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * The number of indexed products.
+     *
+     * @return the number of live documents
+     */
+    int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return liveDocs;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * The number of documents in the postings, including the deleted ones which are not compacted yet.
+     *
+     * @return the number of live and deleted documents
+     */
+    int documentCount() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return maxOrdinal;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the product to the index, respectively replaces its previous name. Nothing changes if the name is the same.
+     *
+     * @param productId the id of the product
+     * @param name      the name of the product
+     */
+    void index(long productId, String name) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int ordinal = ordinalsById.get(productId);
+            if (ordinal != LongIntHashMap.NO_VALUE && names[ordinal].equals(name)) {
+                return;
+            }
+            removeInternal(productId);
+            indexWithoutLock(productId, name);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the product from the index, if present.
+     *
+     * @param productId the id of the product
+     */
+    void remove(long productId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            removeInternal(productId);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the products best matching any of the query terms.
+     *
+     * @param query the user input
+     * @param limit the maximum number of hits
+     * @return the hits ordered by descending relevance
+     */
+    List<ProductSearchHit> search(String query, int limit) {
+        List<String> terms = ProductNameAnalyzer.tokenize(query);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            if (liveDocs == 0 || terms.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+            List<PostingList> matches = matchingPostings(terms);
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+
+            float averageLength = (float) liveLength / liveDocs;
+            ScoreAccumulator scores = new ScoreAccumulator(matches.stream().mapToInt(match -> match.size).sum());
+            for (PostingList postingList : matches) {
+                float idf = (float) Math.log(1 + (liveDocs - postingList.liveCount + 0.5)
+                    / (postingList.liveCount + 0.5));
+                for (int i = 0; i < postingList.size; i++) {
+                    int ordinal = postingList.ordinals[i];
+                    if (!deleted.get(ordinal)) {
+                        int frequency = postingList.frequencies[i];
+                        float normalization = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                        scores.add(ordinal, idf * frequency * (K1 + 1) / (frequency + normalization));
+                    }
+                }
+            }
+            return topHits(scores, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private List<PostingList> matchingPostings(List<String> terms) {
+        List<PostingList> matches = new ArrayList<>(terms.size());
+        for (String term : termFrequencies(terms).keySet()) {
+            PostingList postingList = postings.get(term);
+            if (postingList != null && postingList.liveCount > 0) {
+                matches.add(postingList);
+            }
+        }
+        return matches;
+    }
+
+    private List<ProductSearchHit> topHits(ScoreAccumulator scores, int limit) {
+        TopK top = new TopK(Math.min(limit, scores.size));
+        for (int slot = 0; slot < scores.ordinals.length; slot++) {
+            if (scores.ordinals[slot] != ScoreAccumulator.EMPTY) {
+                top.offer(scores.ordinals[slot], scores.scores[slot]);
+            }
+        }
+        int[] ordinals = top.sortedOrdinals();
+        float[] topScores = top.sortedScores();
+        List<ProductSearchHit> hits = new ArrayList<>(ordinals.length);
+        for (int i = 0; i < ordinals.length; i++) {
+            hits.add(new ProductSearchHit(productIds[ordinals[i]], names[ordinals[i]], topScores[i]));
+        }
+        return hits;
+    }
+
+    private void removeInternal(long productId) {
+        int ordinal = ordinalsById.remove(productId);
+        if (ordinal == LongIntHashMap.NO_VALUE) {
+            return;
+        }
+        List<String> tokens = ProductNameAnalyzer.tokenize(names[ordinal]);
+        for (String term : termFrequencies(tokens).keySet()) {
+            PostingList postingList = postings.get(term);
+            postingList.liveCount--;
+        }
+        deleted.set(ordinal);
+        names[ordinal] = null;
+        liveDocs--;
+        liveLength -= lengths[ordinal];
+    }
+
+    private void compactIfNeeded() {
+        int deletedDocs = deleted.cardinality();
+        if (deletedDocs >= MIN_DELETED_FOR_COMPACTION && deletedDocs > liveDocs / 4) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuilds the postings from the live documents, which drops the deleted documents and renumbers the ordinals.
+     */
+    private void compact() {
+        long[] oldIds = productIds;
+        String[] oldNames = names;
+        int oldMaxOrdinal = maxOrdinal;
+
+        postings.clear();
+        deleted.clear();
+        productIds = new long[Math.max(liveDocs, 16)];
+        names = new String[productIds.length];
+        lengths = new int[productIds.length];
+        maxOrdinal = 0;
+        liveDocs = 0;
+        liveLength = 0;
+        for (int ordinal = 0; ordinal < oldMaxOrdinal; ordinal++) {
+            if (oldNames[ordinal] != null) {
+                ordinalsById.remove(oldIds[ordinal]);
+                indexWithoutLock(oldIds[ordinal], oldNames[ordinal]);
+            }
+        }
+    }
+
+    private void indexWithoutLock(long productId, String name) {
+        List<String> tokens = ProductNameAnalyzer.tokenize(name);
+        int ordinal = maxOrdinal++;
+        ensureCapacity(ordinal + 1);
+        productIds[ordinal] = productId;
+        names[ordinal] = name;
+        lengths[ordinal] = tokens.size();
+        ordinalsById.put(productId, ordinal);
+        liveDocs++;
+        liveLength += tokens.size();
+        termFrequencies(tokens).forEach((term, frequency) ->
+            postings.computeIfAbsent(term, t -> new PostingList()).add(ordinal, frequency));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > productIds.length) {
+            int newCapacity = Math.max(capacity, productIds.length + (productIds.length >> 1));
+            productIds = Arrays.copyOf(productIds, newCapacity);
+            names = Arrays.copyOf(names, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+        }
+    }
+
+    private static Map<String, Integer> termFrequencies(List<String> tokens) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    /**
+     * The documents containing a term, ordered by ascending ordinal.
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int liveCount;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+            liveCount++;
+        }
+    }
+
+    /**
+     * Open addressing map from ordinal to the accumulated score of a single query.
+     */
+    private static final class ScoreAccumulator {
+
+        static final int EMPTY = -1;
+
+        private final int[] ordinals;
+        private final float[] scores;
+        private int size;
+
+        ScoreAccumulator(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+            this.ordinals = new int[capacity];
+            this.scores = new float[capacity];
+            Arrays.fill(ordinals, EMPTY);
+        }
+
+        void add(int ordinal, float score) {
+            int mask = ordinals.length - 1;
+            int slot = (ordinal * 0x9E3779B9) & mask;
+            while (ordinals[slot] != EMPTY && ordinals[slot] != ordinal) {
+                slot = (slot + 1) & mask;
+            }
+            if (ordinals[slot] == EMPTY) {
+                ordinals[slot] = ordinal;
+                size++;
+            }
+            scores[slot] += score;
+        }
+    }
+
+    /**
+     * Bounded min-heap keeping the k best scores, ties are broken in favour of the lower ordinal.
+     */
+    private static final class TopK {
+
+        private final int[] ordinals;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            this.ordinals = new int[k];
+            this.scores = new float[k];
+        }
+
+        void offer(int ordinal, float score) {
+            if (ordinals.length == 0) {
+                return;
+            }
+            if (size < ordinals.length) {
+                ordinals[size] = ordinal;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (isBetter(ordinal, score, 0)) {
+                ordinals[0] = ordinal;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        int[] sortedOrdinals() {
+            sortDescending();
+            return Arrays.copyOf(ordinals, size);
+        }
+
+        float[] sortedScores() {
+            return Arrays.copyOf(scores, size);
+        }
+
+        private boolean isBetter(int ordinal, float score, int index) {
+            return score > scores[index] || (score == scores[index] && ordinal < ordinals[index]);
+        }
+
+        private void siftUp(int index) {
+            int child = index;
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+                if (!isBetter(ordinals[parent], scores[parent], child)) {
+                    return;
+                }
+                swap(parent, child);
+                child = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            int parent = index;
+            while (true) {
+                int smallest = parent;
+                for (int child = 2 * parent + 1; child <= 2 * parent + 2 && child < size; child++) {
+                    if (isBetter(ordinals[smallest], scores[smallest], child)) {
+                        smallest = child;
+                    }
+                }
+                if (smallest == parent) {
+                    return;
+                }
+                swap(parent, smallest);
+                parent = smallest;
+            }
+        }
+
+        /**
+         * Heap sort, which leaves the best hit at index 0.
+         */
+        private void sortDescending() {
+            int heapSize = size;
+            while (size > 1) {
+                swap(0, size - 1);
+                size--;
+                siftDown(0);
+            }
+            size = heapSize;
+        }
+
+        private void swap(int i, int j) {
+            int ordinal = ordinals[i];
+            float score = scores[i];
+            ordinals[i] = ordinals[j];
+            scores[i] = scores[j];
+            ordinals[j] = ordinal;
+            scores[j] = score;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Full-text search over the product names, answered from the in-memory {@link ProductSearchIndex}.
+ * <p>
+ * The index is built from the database once the application is ready and kept up to date with the committed
+ * {@link ProductChangedEvent}s. Queries never touch the database.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductSearchService {
+
+    private final ProductRepository productRepo;
+    private final EntityManager entityManager;
+
+    private final Object rebuildLock = new Object();
+    private volatile ProductSearchIndex index = new ProductSearchIndex(0);
+
+    /**
+     * Changes committed while a rebuild is running, they are replayed on the new index. Guarded by the rebuild lock.
+     */
+    private List<ProductChangedEvent> changesDuringRebuild;
+
+    ProductSearchService(ProductRepository productRepo, EntityManager entityManager) {
+        this.productRepo = productRepo;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Finds the products matching the query best.
+     *
+     * @param query the user input
+     * @param limit the maximum number of hits
+     * @return the hits ordered by descending relevance
+     */
+    public List<ProductSearchHit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    /**
+     * Builds a new index from the database and swaps it in, searches are served by the old index in the meantime.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (rebuildLock) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            ProductSearchIndex fresh = new ProductSearchIndex(index.size());
+            try (Stream<Product> products = productRepo.streamAllByOrderByIdAsc()) {
+                products.forEach(product -> {
+                    fresh.index(product.getId(), product.getName());
+                    entityManager.detach(product);
+                });
+            }
+            synchronized (rebuildLock) {
+                changesDuringRebuild.forEach(change -> apply(fresh, change));
+                index = fresh;
+            }
+            long tookMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Indexed {} products for the search in {} ms", fresh.size(), tookMillis);
+        } finally {
+            synchronized (rebuildLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (rebuildLock) {
+            apply(index, event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private static void apply(ProductSearchIndex target, ProductChangedEvent event) {
+        Product product = event.getProduct();
+        if (event.getKind() == ProductChangedEvent.Kind.DELETED) {
+            target.remove(product.getId());
+        } else {
+            target.index(product.getId(), product.getName());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.RepresentationModel;
+
+/**
+ * The fields and links a client asked for with the {@code fields} and {@code links} request parameters.
+ * <p>
+ * Only the default shape, all fields with all links, is rendered as {@code EntityModel<Product>}, which the
+ * {@link ProductResourceProcessor} completes with the image link. Every other shape is rendered as a
+ * {@link SparseProduct}: the omitted fields are never serialized and the omitted links are never created.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductShape {
+
+    static final ProductShape FULL = new ProductShape(EnumSet.allOf(Field.class), Links.FULL);
+
+    private final Set<Field> fields;
+    private final Links links;
+
+    private ProductShape(Set<Field> fields, Links links) {
+        this.fields = fields;
+        this.links = links;
+    }
+
+    /**
+     * @param fields comma separated field names, {@code null} for all fields. The id is always included.
+     * @param links  {@code none}, {@code minimal} or {@code full}, {@code null} for {@code full}
+     * @return the shape, empty if a field or the links level is unknown
+     */
+    static Optional<ProductShape> parse(String fields, String links) {
+        Optional<Links> linkLevel = links == null ? Optional.of(Links.FULL) : Links.parse(links);
+        if (linkLevel.isEmpty()) {
+            return Optional.empty();
+        }
+        if (fields == null) {
+            return Optional.of(linkLevel.get() == Links.FULL ? FULL : new ProductShape(FULL.fields, linkLevel.get()));
+        }
+
+        Set<Field> selected = EnumSet.of(Field.ID);
+        for (String name : fields.split(",")) {
+            Optional<Field> field = Field.parse(name.trim());
+            if (field.isEmpty()) {
+                return Optional.empty();
+            }
+            selected.add(field.get());
+        }
+        return Optional.of(new ProductShape(selected, linkLevel.get()));
+    }
+
+    boolean isFull() {
+        return links == Links.FULL && fields.size() == Field.values().length;
+    }
+
+    /**
+     * @param product      the product to render
+     * @param requestLinks the product links of the current request
+     * @return the product in this shape
+     */
+    RepresentationModel<?> toModel(Product product, ProductLinks.RequestLinks requestLinks) {
+        if (isFull()) {
+            return EntityModel.of(product, requestLinks.self(product.getId()), requestLinks.products());
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Field field : fields) {
+            values.put(field.jsonName, field.accessor.apply(product));
+        }
+        SparseProduct model = new SparseProduct(values);
+        if (links != Links.NONE) {
+            model.add(requestLinks.self(product.getId()));
+        }
+        if (links == Links.FULL) {
+            model.add(requestLinks.products());
+            model.add(requestLinks.image(product.getId()));
+        }
+        return model;
+    }
+
+    /**
+     * The fields of a product which can be selected.
+     */
+    enum Field {
+        ID("id", Product::getId),
+        NAME("name", Product::getName),
+        PRICE("price", Product::getPrice),
+        CATEGORY("category", Product::getCategory),
+        BRAND("brand", Product::getBrand);
+
+        private final String jsonName;
+        private final Function<Product, Object> accessor;
+
+        Field(String jsonName, Function<Product, Object> accessor) {
+            this.jsonName = jsonName;
+            this.accessor = accessor;
+        }
+
+        static Optional<Field> parse(String jsonName) {
+            for (Field field : values()) {
+                if (field.jsonName.equals(jsonName)) {
+                    return Optional.of(field);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Which links are rendered per product.
+     */
+    enum Links {
+        /**
+         * No links at all.
+         */
+        NONE,
+        /**
+         * The {@code self} link only.
+         */
+        MINIMAL,
+        /**
+         * The {@code self}, {@code products} and {@code image} links.
+         */
+        FULL;
+
+        static Optional<Links> parse(String value) {
+            try {
+                return Optional.of(valueOf(value.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
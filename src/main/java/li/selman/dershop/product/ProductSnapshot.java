@@ -0,0 +1,242 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * A read-only image of the catalog in a memory-mapped file, the products are kept outside the Java heap.
+ * <p>
+ * The layout of the file, all numbers big-endian:
+ * <pre>
+ * header   magic (int), format version (int), number of products (int), unused (int),
+ *          position of the index (long), sequence number of the last change included (long)
+ * records  per product: version (long), last modified as epoch second (long) and nanos (int),
+ *          name, price, category, brand
+ * index    the product ids in ascending order (long each), followed by the positions of their records (long each)
+ * </pre>
+ * A string is written as the length of its UTF-8 bytes (int, {@code -1} for {@code null}) and the bytes, a price as a
+ * presence flag (byte), its scale (int) and its unscaled value (long).
+ * <p>
+ * A lookup is a binary search over the index and decodes a single record, safe for concurrent use. The file is mapped
+ * in one piece, hence it is limited to 2 GiB.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductSnapshot {
+
+    private static final int MAGIC = 0x44534350;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int indexPosition;
+    private final long changeSeq;
+
+    private ProductSnapshot(ByteBuffer buffer, int size, int indexPosition, long changeSeq) {
+        this.buffer = buffer;
+        this.size = size;
+        this.indexPosition = indexPosition;
+        this.changeSeq = changeSeq;
+    }
+
+    /**
+     * Writes the products to the file, replacing its content.
+     *
+     * @param file      the file to write
+     * @param changeSeq the sequence number of the last change the products include
+     * @param products  the products in ascending id order
+     * @return the number of written products
+     * @throws IOException           if the file cannot be written
+     * @throws IllegalStateException if the products are not in ascending id order or exceed 2 GiB
+     */
+    static int write(Path file, long changeSeq, Iterator<Product> products) throws IOException {
+        long[] ids = new long[1024];
+        long[] positions = new long[ids.length];
+        int count = 0;
+        long indexPosition;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            // The header is written once the index position is known
+            out.write(new byte[HEADER_SIZE]);
+            while (products.hasNext()) {
+                Product product = products.next();
+                if (count > 0 && product.getId() <= ids[count - 1]) {
+                    throw new IllegalStateException("Products not in ascending id order at id " + product.getId());
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                ids[count] = product.getId();
+                positions[count] = out.size();
+                count++;
+                writeRecord(out, product);
+            }
+            indexPosition = out.size();
+            if (indexPosition + (long) count * INDEX_ENTRY_SIZE >= Integer.MAX_VALUE) {
+                throw new IllegalStateException("The snapshot of " + count + " products exceeds a single mapping");
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(ids[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(positions[i]);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(count)
+                .putInt(0)
+                .putLong(indexPosition)
+                .putLong(changeSeq)
+                .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return count;
+    }
+
+    /**
+     * Maps a file written by {@link #write(Path, long, Iterator)}. The mapping stays valid when the file is replaced.
+     *
+     * @param file the file to map
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is no snapshot
+     */
+    static ProductSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a product snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int size = buffer.getInt(8);
+            long indexPosition = buffer.getLong(16);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || size < 0
+                || indexPosition + (long) size * INDEX_ENTRY_SIZE != length) {
+                throw new IOException("Not a product snapshot of format version " + FORMAT_VERSION + ": " + file);
+            }
+            return new ProductSnapshot(buffer, size, (int) indexPosition, buffer.getLong(24));
+        }
+    }
+
+    /**
+     * @return the number of products
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the sequence number of the last change included, later changes have to be applied on top
+     */
+    long getChangeSeq() {
+        return changeSeq;
+    }
+
+    /**
+     * @param id the id of the product
+     * @return a detached copy of the product, empty if the snapshot does not contain it
+     */
+    Optional<Product> find(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = buffer.getLong(indexPosition + mid * Long.BYTES);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                long position = buffer.getLong(indexPosition + (size + mid) * Long.BYTES);
+                return Optional.of(readRecord(id, (int) position));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static void writeRecord(DataOutputStream out, Product product) throws IOException {
+        Instant lastModified = product.getLastModifiedDate();
+        out.writeLong(product.getVersion());
+        out.writeLong(lastModified.getEpochSecond());
+        out.writeInt(lastModified.getNano());
+        writeString(out, product.getName());
+        BigDecimal price = product.getPrice();
+        out.writeBoolean(price != null);
+        if (price != null) {
+            out.writeInt(price.scale());
+            out.writeLong(price.unscaledValue().longValueExact());
+        }
+        writeString(out, product.getCategory());
+        writeString(out, product.getBrand());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private Product readRecord(long id, int position) {
+        // A duplicate has its own position, the shared buffer is only read with absolute offsets
+        ByteBuffer record = buffer.duplicate().position(position);
+        long version = record.getLong();
+        Instant lastModified = Instant.ofEpochSecond(record.getLong(), record.getInt());
+        String name = readString(record);
+        BigDecimal price = null;
+        if (record.get() != 0) {
+            int scale = record.getInt();
+            price = BigDecimal.valueOf(record.getLong(), scale);
+        }
+        String category = readString(record);
+        String brand = readString(record);
+        return new Product(id, name, price, category, brand, version, lastModified);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
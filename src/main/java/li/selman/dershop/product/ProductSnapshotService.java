@@ -0,0 +1,325 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serves product lookups from a memory-mapped {@link ProductSnapshot} of the catalog, off the Java heap and without a
+ * database call.
+ * <p>
+ * The snapshot lives in {@code snapshot-directory}. On startup an existing file is mapped right away and only the
+ * changes recorded since it was written are read from the change feed. A new file is written if there is none or if
+ * deletes it has not seen already expired from the feed. Every {@code snapshot-rebuild-interval} a fresh file is
+ * written next to the current one, moved over it and swapped in, lookups keep using the old one in the meantime.
+ * <p>
+ * The products changed since the snapshot was written are kept on the heap: the changes of this instance as they
+ * commit, the ones of the other instances by polling the change feed every {@code snapshot-poll-interval}.
+ * <p>
+ * Opening, rebuilding and polling run on two threads of their own, a rebuild neither holds up the shared
+ * {@code @Scheduled} jobs nor the polling. The database is only queried outside of the update lock, which the
+ * committing transactions take to apply their changes.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductSnapshotService {
+
+    static final String FILE_NAME = "products.snapshot";
+
+    private static final int FEED_PAGE_SIZE = 1000;
+
+    private final ProductRepository productRepo;
+    private final ProductChangeRepository changeRepo;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProductProperties properties;
+    private final Path directory;
+    private final ScheduledExecutorService executor;
+
+    private final Object updateLock = new Object();
+    private volatile Mapped current;
+
+    /**
+     * Changes committed while a rebuild is running, they are replayed on the new snapshot. Guarded by the update lock.
+     */
+    private List<ProductChangedEvent> changesDuringRebuild;
+
+    ProductSnapshotService(ProductRepository productRepo, ProductChangeRepository changeRepo,
+                           EntityManager entityManager, PlatformTransactionManager transactionManager,
+                           ProductProperties properties) {
+        this.productRepo = productRepo;
+        this.changeRepo = changeRepo;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+        String configured = properties.getSnapshotDirectory();
+        this.directory = configured == null || configured.isBlank() ? null : Paths.get(configured);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-snapshot-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newScheduledThreadPool(2, threadFactory);
+    }
+
+    /**
+     * @param id the id of the product
+     * @return the product, empty if the snapshot is not ready, does not know the product or the product was deleted
+     * since; ask the database then
+     */
+    public Optional<Product> find(long id) {
+        Mapped mapped = current;
+        if (mapped == null) {
+            return Optional.empty();
+        }
+        Optional<Product> changed = mapped.changes.get(id);
+        // The changed products are shared, the snapshot reads a new instance every time
+        return changed == null ? mapped.snapshot.find(id) : changed.map(Product::copy);
+    }
+
+    /**
+     * Opens the snapshot in the background and schedules the rebuilds and the polling.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (directory == null) {
+            return;
+        }
+        executor.execute(this::open);
+        long rebuildMillis = properties.getSnapshotRebuildInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::rebuild, rebuildMillis, rebuildMillis, TimeUnit.MILLISECONDS);
+        long pollMillis = properties.getSnapshotPollInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Maps the existing snapshot and catches up with the change feed, respectively writes a new one.
+     */
+    void open() {
+        Path file = directory.resolve(FILE_NAME);
+        try {
+            if (Files.exists(file)) {
+                ProductSnapshot snapshot = ProductSnapshot.open(file);
+                if (snapshot.getChangeSeq() >= changeRepo.findHorizon()) {
+                    Mapped mapped = swapIn(snapshot);
+                    log.info("Mapped the snapshot of {} products, {} changed since", snapshot.size(),
+                        mapped.changes.size());
+                    return;
+                }
+                log.info("The product snapshot {} is behind the change feed horizon, rewriting it", file);
+            }
+        } catch (IOException | DataAccessException e) {
+            log.warn("Could not map the product snapshot {}, rewriting it", file, e);
+        }
+        rebuild();
+    }
+
+    /**
+     * Writes a new snapshot from the database and swaps it in.
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        synchronized (updateLock) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(FILE_NAME);
+            Path temp = Files.createTempFile(directory, FILE_NAME, ".tmp");
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> write(temp));
+                Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            ProductSnapshot snapshot = ProductSnapshot.open(file);
+            swapIn(snapshot);
+            long tookMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Wrote the snapshot of {} products in {} ms", snapshot.size(), tookMillis);
+        } catch (IOException | UncheckedIOException | DataAccessException | TransactionException e) {
+            log.warn("Could not write the product snapshot, keeping the previous one", e);
+        } finally {
+            synchronized (updateLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the changes of the other instances from the change feed.
+     */
+    void poll() {
+        Mapped mapped = current;
+        if (mapped == null) {
+            return;
+        }
+        try {
+            catchUp(mapped);
+        } catch (DataAccessException e) {
+            log.warn("Could not read the product changes, retrying with the next poll", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (updateLock) {
+            if (current != null) {
+                current.apply(event);
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private void write(Path file) {
+        // Changes after this position are applied on top, the products may already include some of them
+        long changeSeq = changeRepo.findLatestSeq();
+        try (Stream<Product> products = productRepo.streamAllByOrderByIdAsc()) {
+            ProductSnapshot.write(file, changeSeq, products.peek(entityManager::detach).iterator());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Catches up the snapshot with the change feed and makes it the current one. The changes committed during a
+     * rebuild are replayed on it, they may not be in the feed yet.
+     */
+    private Mapped swapIn(ProductSnapshot snapshot) {
+        Mapped mapped = new Mapped(snapshot);
+        catchUp(mapped);
+        synchronized (updateLock) {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.forEach(mapped::apply);
+                changesDuringRebuild = null;
+            }
+            current = mapped;
+        }
+        return mapped;
+    }
+
+    /**
+     * Applies the changes after the position of the snapshot. The feed and the products are read without holding the
+     * update lock, a page read while another thread moved the position on is dropped and read again from there.
+     */
+    private void catchUp(Mapped mapped) {
+        Slice<ProductChange> changes;
+        do {
+            long after;
+            synchronized (updateLock) {
+                after = mapped.changeSeq;
+            }
+            changes = changeRepo.findBySeqGreaterThanOrderBySeqAsc(after, PageRequest.of(0, FEED_PAGE_SIZE));
+            List<Long> saved = new ArrayList<>(changes.getNumberOfElements());
+            for (ProductChange change : changes) {
+                if (change.getOperation() != ProductChange.Operation.DELETE) {
+                    saved.add(change.getProductId());
+                }
+            }
+            // A product deleted in the meantime is not found, its delete follows in the feed
+            Iterable<Product> products = saved.isEmpty() ? List.of() : productRepo.findAllById(saved);
+            synchronized (updateLock) {
+                if (mapped.changeSeq == after) {
+                    apply(mapped, changes, products);
+                }
+            }
+        } while (changes.hasNext());
+    }
+
+    /**
+     * Applies a page of the change feed. Guarded by the update lock.
+     */
+    private static void apply(Mapped mapped, Slice<ProductChange> changes, Iterable<Product> products) {
+        for (ProductChange change : changes) {
+            if (change.getOperation() == ProductChange.Operation.DELETE) {
+                mapped.apply(change.getProductId(), null);
+            }
+            mapped.changeSeq = change.getSeq();
+        }
+        products.forEach(product -> mapped.apply(product.getId(), product));
+    }
+
+    /**
+     * A mapped snapshot and the products changed since.
+     */
+    private static final class Mapped {
+
+        private final ProductSnapshot snapshot;
+
+        /**
+         * The changed products by id, empty if deleted.
+         */
+        private final Map<Long, Optional<Product>> changes = new ConcurrentHashMap<>();
+
+        /**
+         * The sequence number of the last change applied. Guarded by the update lock.
+         */
+        private long changeSeq;
+
+        Mapped(ProductSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.changeSeq = snapshot.getChangeSeq();
+        }
+
+        void apply(ProductChangedEvent event) {
+            Product product = event.getProduct();
+            apply(product.getId(), event.getKind() == ProductChangedEvent.Kind.DELETED ? null : product);
+        }
+
+        void apply(long id, Product product) {
+            // Ids are not reused, hence a delete is final. Otherwise the events and the feed race, the newer one wins.
+            changes.merge(id, Optional.ofNullable(product), (previous, next) ->
+                previous.isEmpty() || next.isPresent() && next.get().getVersion() < previous.get().getVersion()
+                    ? previous : next);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Typeahead suggestions for the product names, answered from an in-memory {@link ProductSuggestTrie}.
+ * <p>
+ * The trie is immutable. It is rebuilt on a background thread and swapped in atomically, lookups never wait for a
+ * rebuild and never hit the database. Product changes only mark the trie as stale, they are coalesced into one rebuild
+ * after {@link ProductProperties#getSuggestRebuildDelay()}.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductSuggestService {
+
+    private final ProductRepository productRepo;
+    private final ProductProperties properties;
+
+    private final AtomicReference<ProductSuggestTrie> trie = new AtomicReference<>(ProductSuggestTrie.EMPTY);
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ProductSuggestService(ProductRepository productRepo, ProductProperties properties) {
+        this.productRepo = productRepo;
+        this.properties = properties;
+    }
+
+    /**
+     * Suggests product names for the typeahead.
+     *
+     * @param prefix what the user typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the best product names starting with the prefix, shorter names first
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return trie.get().suggest(prefix, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild(0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        scheduleRebuild(properties.getSuggestRebuildDelay().toMillis());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void scheduleRebuild(long delayMillis) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.schedule(this::rebuild, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        // changes arriving from now on may not be part of this build and have to schedule the next one
+        rebuildScheduled.set(false);
+        try {
+            long start = System.nanoTime();
+            List<String> names = productRepo.findAllDistinctNames();
+            ProductSuggestTrie fresh = ProductSuggestTrie.build(names, properties.getMaxSuggestions());
+            trie.set(fresh);
+            long tookMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Built typeahead suggestions for {} product names in {} ms", fresh.size(), tookMillis);
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the typeahead suggestions, keeping the previous ones", e);
+        }
+    }
+}
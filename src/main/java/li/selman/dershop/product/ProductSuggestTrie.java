@@ -0,0 +1,307 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable radix trie over the normalized product names, answering prefix lookups for the typeahead.
+ * <p>
+ * Every node covers a contiguous range of the sorted keys, its label is the part of the keys between the depth of the
+ * parent and the own depth, so no characters are copied. The nodes are laid out breadth first in parallel
+ * {@code int} arrays with the children of a node next to each other. Each node carries the precomputed best
+ * {@code k} suggestions below it in one flat array, thus a lookup only walks the prefix and copies that list.
+ * <p>
+ * Suggestions are ranked by the length of the name, shorter first, then alphabetically.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductSuggestTrie {
+
+    private static final Comparator<String> RANKING = Comparator.comparingInt(String::length)
+        .thenComparing(Comparator.naturalOrder());
+
+    static final ProductSuggestTrie EMPTY = build(Collections.emptyList(), 1);
+
+    /** Normalized names, sorted alphabetically. */
+    private final String[] keys;
+    /** Original name per key. */
+    private final String[] names;
+
+    private final int[] nodeFrom;
+    private final int[] nodeDepth;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topOffset;
+    private final int[] top;
+    private final int maxSuggestions;
+
+    private ProductSuggestTrie(String[] keys, String[] names, Builder builder, int maxSuggestions) {
+        this.keys = keys;
+        this.names = names;
+        int nodes = builder.nodeCount;
+        this.nodeFrom = Arrays.copyOf(builder.nodeFrom, nodes);
+        this.nodeDepth = Arrays.copyOf(builder.nodeDepth, nodes);
+        this.firstChild = Arrays.copyOf(builder.firstChild, nodes);
+        this.childCount = Arrays.copyOf(builder.childCount, nodes);
+        this.topOffset = builder.topOffset;
+        this.top = builder.top;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    /**
+     * Builds the trie.
+     *
+     * @param productNames   the product names, duplicates and names equal after normalization are collapsed
+     * @param maxSuggestions the number of suggestions precomputed per node
+     * @return the new trie
+     */
+    static ProductSuggestTrie build(Collection<String> productNames, int maxSuggestions) {
+        Map<String, String> byKey = new TreeMap<>();
+        for (String name : productNames) {
+            String key = ProductNameAnalyzer.normalize(name).trim();
+            if (!key.isEmpty()) {
+                byKey.merge(key, name.trim(), (left, right) -> left.compareTo(right) <= 0 ? left : right);
+            }
+        }
+        String[] keys = byKey.keySet().toArray(new String[0]);
+        String[] names = byKey.values().toArray(new String[0]);
+
+        Integer[] byRank = new Integer[keys.length];
+        Arrays.setAll(byRank, i -> i);
+        Arrays.sort(byRank, Comparator.comparing(i -> keys[i], RANKING));
+        int[] rank = new int[keys.length];
+        int[] keyOfRank = new int[keys.length];
+        for (int i = 0; i < byRank.length; i++) {
+            rank[byRank[i]] = i;
+            keyOfRank[i] = byRank[i];
+        }
+
+        Builder builder = new Builder(keys, rank, keyOfRank, maxSuggestions);
+        builder.build();
+        return new ProductSuggestTrie(keys, names, builder, maxSuggestions);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    /**
+     * Looks up the best product names starting with the given prefix.
+     *
+     * @param prefix the user input, normalized like the names
+     * @param limit  the maximum number of suggestions, at most the precomputed {@link #getMaxSuggestions()}
+     * @return the best matching product names
+     */
+    List<String> suggest(String prefix, int limit) {
+        int node = find(ProductNameAnalyzer.normalize(prefix).stripLeading());
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+        int from = topOffset[node];
+        int count = Math.min(limit, topOffset[node + 1] - from);
+        String[] result = new String[Math.max(count, 0)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = names[top[from + i]];
+        }
+        return Arrays.asList(result);
+    }
+
+    private int find(String prefix) {
+        if (keys.length == 0) {
+            return -1;
+        }
+        int node = 0;
+        int matched = 0;
+        while (true) {
+            String key = keys[nodeFrom[node]];
+            int end = Math.min(prefix.length(), nodeDepth[node]);
+            if (!prefix.regionMatches(matched, key, matched, end - matched)) {
+                return -1;
+            }
+            if (prefix.length() <= nodeDepth[node]) {
+                return node;
+            }
+            matched = nodeDepth[node];
+            node = findChild(node, prefix.charAt(matched), matched);
+            if (node < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private int findChild(int node, char next, int depth) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = keys[nodeFrom[mid]].charAt(depth);
+            if (c < next) {
+                low = mid + 1;
+            } else if (c > next) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Lays out the nodes breadth first and computes the per-node suggestions bottom up. */
+    private static final class Builder {
+
+        private final String[] keys;
+        private final int[] rank;
+        private final int[] keyOfRank;
+        private final int maxSuggestions;
+
+        private int nodeCount;
+        private int[] nodeFrom;
+        private int[] nodeTo;
+        private int[] nodeDepth;
+        private int[] firstChild;
+        private int[] childCount;
+        private int[] topOffset;
+        private int[] top;
+
+        Builder(String[] keys, int[] rank, int[] keyOfRank, int maxSuggestions) {
+            this.keys = keys;
+            this.rank = rank;
+            this.keyOfRank = keyOfRank;
+            this.maxSuggestions = maxSuggestions;
+            int capacity = Math.max(2 * keys.length, 1);
+            this.nodeFrom = new int[capacity];
+            this.nodeTo = new int[capacity];
+            this.nodeDepth = new int[capacity];
+            this.firstChild = new int[capacity];
+            this.childCount = new int[capacity];
+        }
+
+        void build() {
+            if (keys.length == 0) {
+                topOffset = new int[1];
+                top = new int[0];
+                return;
+            }
+            addNode(0, keys.length, 0);
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                int depth = nodeDepth[node];
+                int from = nodeFrom[node];
+                int to = nodeTo[node];
+                // the key ending at this node, if any, sorts first
+                if (keys[from].length() == depth) {
+                    from++;
+                }
+                firstChild[node] = nodeCount;
+                while (from < to) {
+                    char c = keys[from].charAt(depth);
+                    int end = from + 1;
+                    while (end < to && keys[end].charAt(depth) == c) {
+                        end++;
+                    }
+                    queue.add(addNode(from, end, depth + 1));
+                    from = end;
+                }
+                childCount[node] = nodeCount - firstChild[node];
+            }
+            computeTopSuggestions();
+        }
+
+        private int addNode(int from, int to, int minDepth) {
+            ensureCapacity();
+            int node = nodeCount++;
+            nodeFrom[node] = from;
+            nodeTo[node] = to;
+            // keys are sorted, so the common prefix of the range is the one of its first and last key
+            nodeDepth[node] = Math.max(minDepth, commonPrefixLength(keys[from], keys[to - 1]));
+            return node;
+        }
+
+        private void ensureCapacity() {
+            if (nodeCount == nodeFrom.length) {
+                int capacity = nodeCount * 2;
+                nodeFrom = Arrays.copyOf(nodeFrom, capacity);
+                nodeTo = Arrays.copyOf(nodeTo, capacity);
+                nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+            }
+        }
+
+        private void computeTopSuggestions() {
+            // children come after their parent in breadth first order, walking backwards visits them first
+            int[][] perNode = new int[nodeCount][];
+            int total = 0;
+            for (int node = nodeCount - 1; node >= 0; node--) {
+                int[] candidates = new int[maxSuggestions * (childCount[node] + 1)];
+                int count = 0;
+                if (keys[nodeFrom[node]].length() == nodeDepth[node]) {
+                    candidates[count++] = nodeFrom[node];
+                }
+                for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+                    for (int key : perNode[child]) {
+                        candidates[count++] = key;
+                    }
+                }
+                perNode[node] = best(candidates, count);
+                total += perNode[node].length;
+            }
+            topOffset = new int[nodeCount + 1];
+            top = new int[total];
+            for (int node = 0; node < nodeCount; node++) {
+                System.arraycopy(perNode[node], 0, top, topOffset[node], perNode[node].length);
+                topOffset[node + 1] = topOffset[node] + perNode[node].length;
+            }
+        }
+
+        private int[] best(int[] candidates, int count) {
+            int[] ranks = new int[count];
+            for (int i = 0; i < count; i++) {
+                ranks[i] = rank[candidates[i]];
+            }
+            Arrays.sort(ranks);
+            int[] result = new int[Math.min(count, maxSuggestions)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = keyOfRank[ranks[i]];
+            }
+            return result;
+        }
+
+        private static int commonPrefixLength(String left, String right) {
+            int max = Math.min(left.length(), right.length());
+            int i = 0;
+            while (i < max && left.charAt(i) == right.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
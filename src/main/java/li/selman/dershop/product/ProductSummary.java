@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * Read-only view of a product for the lean catalog listing.
+ * <p>
+ * Filled by a constructor expression straight from the result set, hence never part of a persistence context: no
+ * entity is instantiated, no snapshot is kept for dirty checking and nothing has to be flushed or detached.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "product", collectionRelation = "products")
+public final class ProductSummary {
+
+    private final long id;
+    private final String name;
+
+    public ProductSummary(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSummary{"
+            + "id=" + id
+            + ", name='" + name + '\''
+            + '}';
+    }
+}
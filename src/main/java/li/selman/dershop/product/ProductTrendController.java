@@ -0,0 +1,81 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductTrendController {
+
+    private final ProductTrendService trendService;
+    private final ProductLookup productLookup;
+    private final ProductLinks productLinks;
+
+    ProductTrendController(ProductTrendService trendService, ProductLookup productLookup, ProductLinks productLinks) {
+        this.trendService = trendService;
+        this.productLookup = productLookup;
+        this.productLinks = productLinks;
+    }
+
+    /**
+     * The "trending now" rail: the products viewed most recently, answered from the in-memory view counts.
+     *
+     * @param size the maximum number of products, capped at {@code dershop.trending.max-size}
+     * @return the trending products, highest score first
+     */
+    @GetMapping("trending")
+    ResponseEntity<CollectionModel<EntityModel<TrendingProduct>>> findTrending(
+        @RequestParam(name = "size", defaultValue = "10") int size
+    ) {
+        List<ProductTrends.Trend> trends = trendService.findTrending(Math.max(1, size));
+        Map<Long, Product> found = productLookup.findAllById(trends.stream()
+            .map(ProductTrends.Trend::getProductId)
+            .collect(Collectors.toList()));
+
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+        List<EntityModel<TrendingProduct>> products = new ArrayList<>(trends.size());
+        for (ProductTrends.Trend trend : trends) {
+            // Deleted products keep trending until their views leave the window
+            Product product = found.get(trend.getProductId());
+            if (product != null) {
+                TrendingProduct trending = new TrendingProduct(product.getId(), product.getName(), trend.getScore());
+                products.add(EntityModel.of(trending, links.self(product.getId())));
+            }
+        }
+
+        Link self = Link.of(UriComponentsBuilder.fromUriString(links.collectionHref())
+            .path("/trending")
+            .queryParam("size", size)
+            .toUriString());
+        return ResponseEntity.ok(CollectionModel.of(products, self));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the {@code product_trend_snapshot} table, one row per instance.
+ *
+ * @author Hasan Selman Kara
+ */
+@Repository
+public class ProductTrendRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductTrendRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Replaces the snapshot of an instance.
+     */
+    void save(String nodeId, Instant takenAt, byte[] payload) {
+        jdbcTemplate.update("insert into product_trend_snapshot (node_id, taken_at, payload) values (?, ?, ?)"
+            + " on conflict (node_id) do update set taken_at = excluded.taken_at, payload = excluded.payload",
+            nodeId, Timestamp.from(takenAt), payload);
+    }
+
+    /**
+     * @return the snapshots of the instance taken after the given time, at most one
+     */
+    List<byte[]> findOwn(String nodeId, Instant takenAfter) {
+        return jdbcTemplate.queryForList("select payload from product_trend_snapshot"
+            + " where node_id = ? and taken_at > ?", byte[].class, nodeId, Timestamp.from(takenAfter));
+    }
+
+    /**
+     * @return the snapshots of all other instances taken after the given time
+     */
+    List<byte[]> findOthers(String nodeId, Instant takenAfter) {
+        return jdbcTemplate.queryForList("select payload from product_trend_snapshot"
+            + " where node_id <> ? and taken_at > ?", byte[].class, nodeId, Timestamp.from(takenAfter));
+    }
+
+    /**
+     * Removes the snapshots of instances which stopped saving, e.g. because they were scaled down.
+     *
+     * @return the number of removed snapshots
+     */
+    int deleteTakenBefore(Instant takenBefore) {
+        return jdbcTemplate.update("delete from product_trend_snapshot where taken_at < ?",
+            Timestamp.from(takenBefore));
+    }
+}
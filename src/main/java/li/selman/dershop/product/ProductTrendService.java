@@ -0,0 +1,160 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.List;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * The products viewed most in the recent past, across all instances.
+ * <p>
+ * Views are counted in memory by the {@link ProductTrends} of this instance, recording one costs a few atomic
+ * additions and no database write. Every {@code snapshot-interval} the counts are saved as snapshot of this instance
+ * and the snapshots of the other instances are read and merged, the ranking adds both. A restarted instance resumes
+ * with its last snapshot, an instance coming up under a new name still sees the snapshot of its predecessor as one of
+ * the others until it leaves the window.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class ProductTrendService {
+
+    private final ProductTrendRepository trendRepo;
+    private final TrendingProperties properties;
+    private final String nodeId;
+    private final ProductTrends local;
+
+    /**
+     * The merged snapshots of the other instances, replaced with every synchronization.
+     */
+    private volatile ProductTrends others;
+
+    /**
+     * Whether the last snapshot of this instance was read. Until then the own counts are not saved, they would
+     * overwrite the snapshot before it is restored.
+     */
+    private volatile boolean restored;
+
+    ProductTrendService(ProductTrendRepository trendRepo, TrendingProperties properties) {
+        this.trendRepo = trendRepo;
+        this.properties = properties;
+        this.nodeId = properties.getNodeId() == null ? hostName() : properties.getNodeId();
+        this.local = newTrends();
+        this.others = newTrends();
+    }
+
+    /**
+     * Counts a view of the product.
+     *
+     * @param productId the id of the viewed product
+     */
+    public void recordView(long productId) {
+        local.record(productId, System.currentTimeMillis());
+    }
+
+    /**
+     * @param limit the maximum number of products, capped at {@code max-size}
+     * @return the products with the highest scores, highest first
+     */
+    List<ProductTrends.Trend> findTrending(int limit) {
+        return local.top(Math.min(limit, properties.getMaxSize()), System.currentTimeMillis(), others);
+    }
+
+    /**
+     * Resumes with the last snapshot of this instance.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        try {
+            long now = System.currentTimeMillis();
+            for (byte[] snapshot : trendRepo.findOwn(nodeId, windowStart(now))) {
+                if (!local.merge(snapshot, now)) {
+                    log.warn("Ignoring the trend snapshot of {}, it was taken with other dimensions", nodeId);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not restore the trend snapshot of {}, starting over", nodeId, e);
+        }
+        restored = true;
+        synchronize();
+    }
+
+    /**
+     * Saves the counts of this instance, once they are restored, and merges the counts of the other instances.
+     * <p>
+     * The schedule starts with the application context, the restore only once the application is ready. Startup work
+     * like the index rebuilds may well take longer than {@code snapshot-interval}.
+     */
+    @Scheduled(
+        initialDelayString = "${dershop.trending.snapshot-interval:PT1M}",
+        fixedDelayString = "${dershop.trending.snapshot-interval:PT1M}")
+    public void synchronize() {
+        long now = System.currentTimeMillis();
+        try {
+            if (restored) {
+                trendRepo.save(nodeId, Instant.ofEpochMilli(now), local.snapshot());
+            }
+            trendRepo.deleteTakenBefore(windowStart(now));
+            ProductTrends merged = newTrends();
+            for (byte[] snapshot : trendRepo.findOthers(nodeId, windowStart(now))) {
+                merged.merge(snapshot, now);
+            }
+            others = merged;
+        } catch (DataAccessException e) {
+            log.warn("Could not synchronize the trending products, retrying with the next snapshot", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!restored) {
+            return;
+        }
+        try {
+            trendRepo.save(nodeId, Instant.now(), local.snapshot());
+        } catch (DataAccessException e) {
+            log.warn("Could not save the trend snapshot of {}", nodeId, e);
+        }
+    }
+
+    private ProductTrends newTrends() {
+        return new ProductTrends(properties.getSketchDepth(), properties.getSketchWidth(),
+            properties.getWindow().toMillis() / properties.getBuckets(), properties.getBuckets(),
+            properties.getDecay(), properties.getCandidates());
+    }
+
+    private Instant windowStart(long nowMillis) {
+        return Instant.ofEpochMilli(nowMillis).minus(properties.getWindow());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The products viewed most in the recent past, counted in fixed memory.
+ * <p>
+ * Time is divided into buckets of {@code window / buckets}, aligned to the epoch so the buckets of all instances
+ * match. Every bucket counts the views of its time in a {@link CountMinSketch}, the buckets form a ring which reuses
+ * the oldest bucket for the next one. The score of a product is the sum of its estimates over the buckets of the
+ * window, each weighted with {@code decay} to the power of the age of the bucket.
+ * <p>
+ * The sketches cannot list their items, hence a bounded set of candidates remembers the heavy hitters. A product
+ * becomes a candidate once its estimate in the current bucket reaches the admission count, whenever the set grew to
+ * twice its capacity the candidates with the lowest scores are dropped and the admission count raised.
+ * <p>
+ * Snapshots are the exchange format between instances and restarts, merging a snapshot adds its counts and its
+ * candidates. Safe for concurrent use, views are recorded without locking.
+ *
+ * @author Hasan Selman Kara
+ */
+final class ProductTrends {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final long bucketMillis;
+    private final double decay;
+    private final int capacity;
+    private final Bucket[] buckets;
+
+    private final Set<Long> candidates = ConcurrentHashMap.newKeySet();
+    private final Object trimLock = new Object();
+    private volatile long admission = 1;
+
+    /**
+     * @param depth        the rows of the sketches
+     * @param width        the cells per row of the sketches, a power of two
+     * @param bucketMillis the time counted by one bucket
+     * @param bucketCount  the number of buckets of the window
+     * @param decay        the weight of a bucket relative to the next younger one, between 0 and 1
+     * @param capacity     the number of candidates kept
+     */
+    ProductTrends(int depth, int width, long bucketMillis, int bucketCount, double decay, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.decay = decay;
+        this.capacity = capacity;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket(new CountMinSketch(depth, width));
+        }
+    }
+
+    /**
+     * @param productId the viewed product
+     * @param nowMillis the time of the view
+     */
+    void record(long productId, long nowMillis) {
+        long estimate = bucketOf(nowMillis / bucketMillis).sketch.add(productId, 1);
+        if (estimate >= admission && candidates.add(productId) && candidates.size() > 2 * capacity) {
+            trim(nowMillis);
+        }
+    }
+
+    /**
+     * @param limit     the maximum number of products
+     * @param nowMillis the current time
+     * @param others    trends counted elsewhere, e.g. on the other instances, to add to these
+     * @return the products with the highest scores, highest first
+     */
+    List<Trend> top(int limit, long nowMillis, ProductTrends others) {
+        Set<Long> ids = new HashSet<>(candidates);
+        ids.addAll(others.candidates);
+        long epoch = nowMillis / bucketMillis;
+        List<Trend> trends = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            double score = score(id, epoch) + others.score(id, epoch);
+            if (score > 0) {
+                trends.add(new Trend(id, score));
+            }
+        }
+        trends.sort(Comparator.comparingDouble(Trend::getScore).reversed());
+        return trends.size() > limit ? new ArrayList<>(trends.subList(0, limit)) : trends;
+    }
+
+    /**
+     * @return the buckets of the window and the candidates, concurrent views may or may not be included
+     */
+    byte[] snapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            CountMinSketch first = buckets[0].sketch;
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(first.depth());
+            out.writeInt(first.width());
+            out.writeLong(bucketMillis);
+            out.writeInt(buckets.length);
+            for (Bucket bucket : buckets) {
+                out.writeLong(bucket.epoch);
+                bucket.sketch.writeTo(out);
+            }
+            List<Long> ids = new ArrayList<>(candidates);
+            out.writeInt(ids.size());
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Adds the counts and the candidates of a snapshot, buckets which fell out of the window are ignored.
+     *
+     * @param snapshot  a snapshot of trends with the same dimensions
+     * @param nowMillis the current time
+     * @return {@code false} if the snapshot was taken with other dimensions and is ignored
+     */
+    boolean merge(byte[] snapshot, long nowMillis) {
+        CountMinSketch first = buckets[0].sketch;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            if (!hasSameDimensions(in)) {
+                return false;
+            }
+            int bucketCount = in.readInt();
+            long currentEpoch = nowMillis / bucketMillis;
+            for (int i = 0; i < bucketCount; i++) {
+                long epoch = in.readLong();
+                if (epoch > currentEpoch - buckets.length && epoch <= currentEpoch) {
+                    bucketOf(epoch).sketch.mergeFrom(in);
+                } else {
+                    in.skipBytes(first.depth() * first.width() * Long.BYTES);
+                }
+            }
+            int candidateCount = in.readInt();
+            for (int i = 0; i < candidateCount; i++) {
+                candidates.add(in.readLong());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (candidates.size() > capacity) {
+            trim(nowMillis);
+        }
+        return true;
+    }
+
+    private boolean hasSameDimensions(DataInputStream in) throws IOException {
+        CountMinSketch first = buckets[0].sketch;
+        return in.readInt() == SNAPSHOT_VERSION && in.readInt() == first.depth() && in.readInt() == first.width()
+            && in.readLong() == bucketMillis;
+    }
+
+    private Bucket bucketOf(long epoch) {
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch < epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch < epoch) {
+                    // Views racing with the rotation may still land in the old counts, they are approximate anyway
+                    bucket.sketch.clear();
+                    bucket.epoch = epoch;
+                    admission = 1;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private double score(long productId, long currentEpoch) {
+        double score = 0;
+        double weight = 1;
+        for (int age = 0; age < buckets.length; age++) {
+            long epoch = currentEpoch - age;
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+            if (bucket.epoch == epoch) {
+                score += weight * bucket.sketch.estimate(productId);
+            }
+            weight *= decay;
+        }
+        return score;
+    }
+
+    private void trim(long nowMillis) {
+        synchronized (trimLock) {
+            if (candidates.size() <= capacity) {
+                return;
+            }
+            long epoch = nowMillis / bucketMillis;
+            List<Trend> ranked = new ArrayList<>(candidates.size());
+            for (Long id : candidates) {
+                ranked.add(new Trend(id, score(id, epoch)));
+            }
+            ranked.sort(Comparator.comparingDouble(Trend::getScore).reversed());
+            CountMinSketch current = bucketOf(epoch).sketch;
+            long lowestKept = Long.MAX_VALUE;
+            for (int i = 0; i < ranked.size(); i++) {
+                long id = ranked.get(i).getProductId();
+                if (i < capacity) {
+                    lowestKept = Math.min(lowestKept, current.estimate(id));
+                } else {
+                    candidates.remove(id);
+                }
+            }
+            // A product has to beat the weakest candidate in the current bucket to get in
+            admission = Math.max(1, lowestKept + 1);
+        }
+    }
+
+    private static final class Bucket {
+
+        private final CountMinSketch sketch;
+        private volatile long epoch = Long.MIN_VALUE;
+
+        Bucket(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+    }
+
+    /**
+     * The score of a product.
+     */
+    static final class Trend {
+
+        private final long productId;
+        private final double score;
+
+        Trend(long productId, double score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        long getProductId() {
+            return productId;
+        }
+
+        double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import li.selman.dershop.app.cache.SingleFlightTimeoutException;
+import li.selman.dershop.app.security.SecurityUtils;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping(ProductController.PATH)
+public class RecentlyViewedController {
+
+    private final RecentlyViewedService recentlyViewedService;
+    private final ProductLookup productLookup;
+    private final ProductLinks productLinks;
+
+    RecentlyViewedController(RecentlyViewedService recentlyViewedService, ProductLookup productLookup,
+                             ProductLinks productLinks) {
+        this.recentlyViewedService = recentlyViewedService;
+        this.productLookup = productLookup;
+        this.productLinks = productLinks;
+    }
+
+    /**
+     * The "recently viewed" strip of the current user, looked up with one batch for all products.
+     *
+     * @param size the maximum number of products, at least one and capped at {@code dershop.recently-viewed.capacity}
+     * @return the products the user viewed, newest first, without the ones deleted in the meantime, or
+     * {@code 400 Bad Request} if the size is less than one
+     */
+    @GetMapping("recent")
+    ResponseEntity<CollectionModel<EntityModel<Product>>> findRecentlyViewed(
+        @RequestParam(name = "size", defaultValue = "10") int size
+    ) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (login.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        long[] ids;
+        try {
+            ids = recentlyViewedService.find(login.get());
+        } catch (SingleFlightTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        List<Long> viewed = Arrays.stream(ids)
+            .limit(size)
+            .boxed()
+            .collect(Collectors.toList());
+        Map<Long, Product> found = productLookup.findAllById(viewed);
+
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+        List<EntityModel<Product>> products = new ArrayList<>(viewed.size());
+        for (Long id : viewed) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(EntityModel.of(product, links.self(id)));
+            }
+        }
+
+        Link self = Link.of(UriComponentsBuilder.fromUriString(links.collectionHref())
+            .path("/recent")
+            .queryParam("size", size)
+            .toUriString());
+        return ResponseEntity.ok(CollectionModel.of(products, self));
+    }
+}
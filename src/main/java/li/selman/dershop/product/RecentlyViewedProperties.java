@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Duration;
+import javax.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration of the recently viewed products of the users.
+ *
+ * @author Hasan Selman Kara
+ */
+@Validated
+@ConfigurationProperties(prefix = "dershop.recently-viewed")
+public class RecentlyViewedProperties {
+
+    /**
+     * Maximum number of products remembered per user, the oldest view falls out first.
+     */
+    @Min(1)
+    private int capacity = 20;
+
+    /**
+     * Number of independently locked shards of the resident strips.
+     */
+    private int shards = 64;
+
+    /**
+     * How long a strip stays resident after its last access, it is written to the database when it is evicted.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * How often the idle strips are written and evicted.
+     */
+    private Duration evictionInterval = Duration.ofMinutes(1);
+
+    /**
+     * How long a request waits for the load of the same strip by a concurrent request before it gives up.
+     */
+    private Duration loadTimeout = Duration.ofSeconds(2);
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public Duration getLoadTimeout() {
+        return loadTimeout;
+    }
+
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+    }
+}
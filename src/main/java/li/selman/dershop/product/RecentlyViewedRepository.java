@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the {@code recently_viewed} table, one row per login with the product ids packed into a single
+ * binary column.
+ *
+ * @author Hasan Selman Kara
+ */
+@Repository
+public class RecentlyViewedRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    RecentlyViewedRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param login the login of the user
+     * @return the viewed product ids, newest first, empty if the user viewed none
+     */
+    long[] findProductIds(String login) {
+        List<byte[]> rows = jdbcTemplate.queryForList("select product_ids from recently_viewed where login = ?",
+            byte[].class, login);
+        return rows.isEmpty() ? new long[0] : unpack(rows.get(0));
+    }
+
+    /**
+     * Replaces the stored strips with the given ones in one batch.
+     *
+     * @param productIds the viewed product ids, newest first, by login
+     * @param updatedAt  the time of the write
+     */
+    void saveAll(Map<String, long[]> productIds, Instant updatedAt) {
+        Timestamp timestamp = Timestamp.from(updatedAt);
+        List<Object[]> rows = new ArrayList<>(productIds.size());
+        // Concurrent writes lock the rows in the same order, hence they cannot deadlock
+        new TreeMap<>(productIds).forEach((login, ids) -> rows.add(new Object[] {login, pack(ids), timestamp}));
+        jdbcTemplate.batchUpdate("insert into recently_viewed (login, product_ids, updated_at) values (?, ?, ?)"
+            + " on conflict (login) do update set product_ids = excluded.product_ids,"
+            + " updated_at = excluded.updated_at", rows);
+    }
+
+    static byte[] pack(long[] ids) {
+        ByteBuffer buffer = ByteBuffer.allocate(ids.length * Long.BYTES);
+        buffer.asLongBuffer().put(ids);
+        return buffer.array();
+    }
+
+    static long[] unpack(byte[] packed) {
+        long[] ids = new long[packed.length / Long.BYTES];
+        ByteBuffer.wrap(packed).asLongBuffer().get(ids);
+        return ids;
+    }
+}
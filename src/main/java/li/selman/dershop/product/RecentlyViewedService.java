@@ -0,0 +1,122 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import li.selman.dershop.app.cache.SingleFlight;
+import li.selman.dershop.app.cache.SingleFlightTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * The products each user viewed last, kept in memory and written to the database when they are evicted.
+ * <p>
+ * Recording a view and reading the strip of a resident user never touches the database. A strip idle for
+ * {@code idle-timeout} is written and evicted with the next run every {@code eviction-interval}, all changed strips
+ * are written on shutdown. The strip is loaded again on the next view of the user, concurrent loads of the same strip
+ * share one query.
+ * <p>
+ * The requests of a user are expected to reach the same instance, like the ones of the shopping cart. If the instance
+ * dies, the views of the resident strips are lost.
+ *
+ * @author Hasan Selman Kara
+ */
+@Service
+@Slf4j
+public class RecentlyViewedService {
+
+    private final RecentlyViewedRepository recentlyViewedRepo;
+    private final RecentlyViewedProperties properties;
+    private final RecentlyViewedStore store;
+
+    RecentlyViewedService(RecentlyViewedRepository recentlyViewedRepo, RecentlyViewedProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.recentlyViewedRepo = recentlyViewedRepo;
+        this.properties = properties;
+        SingleFlight<String, long[]> loads =
+            new SingleFlight<>("recentlyViewed", properties.getLoadTimeout(), meterRegistry);
+        this.store = new RecentlyViewedStore(properties.getShards(), properties.getCapacity(),
+            login -> loads.load(login, () -> recentlyViewedRepo.findProductIds(login)), System::nanoTime);
+        meterRegistry.gauge("recently.viewed.resident", store, RecentlyViewedStore::size);
+    }
+
+    /**
+     * Records a view, a view which cannot be recorded because the strip cannot be loaded is dropped.
+     *
+     * @param login     the login of the user
+     * @param productId the viewed product
+     */
+    public void recordView(String login, long productId) {
+        try {
+            store.record(login, productId);
+        } catch (SingleFlightTimeoutException | DataAccessException e) {
+            log.debug("Dropped the view of product {} by {}", productId, login, e);
+        }
+    }
+
+    /**
+     * @param login the login of the user
+     * @return the ids of the viewed products, newest first, at most {@code capacity}
+     * @throws SingleFlightTimeoutException if the load of a concurrent request did not complete within
+     *                                      {@code load-timeout}
+     */
+    public long[] find(String login) {
+        return store.read(login);
+    }
+
+    /**
+     * Writes the idle strips and evicts them.
+     */
+    @Scheduled(
+        initialDelayString = "${dershop.recently-viewed.eviction-interval:PT1M}",
+        fixedDelayString = "${dershop.recently-viewed.eviction-interval:PT1M}")
+    public void evict() {
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        if (write(store.takeChanged(idleNanos))) {
+            int evicted = store.evictIdle(idleNanos);
+            if (evicted > 0) {
+                log.debug("Evicted {} idle recently viewed strips", evicted);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        write(store.takeChanged(0));
+    }
+
+    /**
+     * @return {@code false} if the strips could not be written, they are written with the next eviction then
+     */
+    private boolean write(Map<String, long[]> changed) {
+        if (changed.isEmpty()) {
+            return true;
+        }
+        try {
+            recentlyViewedRepo.saveAll(changed, Instant.now());
+            return true;
+        } catch (DataAccessException e) {
+            store.markChanged(changed.keySet());
+            log.warn("Could not write {} recently viewed strips, retrying with the next eviction", changed.size(), e);
+            return false;
+        }
+    }
+}
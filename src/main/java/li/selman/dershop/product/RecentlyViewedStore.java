@@ -0,0 +1,125 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import li.selman.dershop.app.cache.ShardedStore;
+
+/**
+ * The resident "recently viewed" strips, one bounded ring of product ids per login.
+ * <p>
+ * A ring holds the ids in a primitive array of {@code capacity} slots, a view moves its product to the front and the
+ * oldest product falls out once the ring is full.
+ *
+ * @author Hasan Selman Kara
+ */
+final class RecentlyViewedStore extends ShardedStore<String, RecentlyViewedStore.Ring> {
+
+    /**
+     * @param shards   the number of shards, rounded up to a power of two
+     * @param capacity the maximum number of products per login
+     * @param loader   loads the stored product ids of a login which is not resident, newest first
+     * @param clock    the current time in nanoseconds, to tell the idle strips
+     */
+    RecentlyViewedStore(int shards, int capacity, Function<String, long[]> loader, LongSupplier clock) {
+        super(shards, login -> Ring.of(capacity, loader.apply(login)), clock);
+    }
+
+    /**
+     * Moves a product to the front of the strip of a login.
+     *
+     * @param login     the login of the user
+     * @param productId the viewed product
+     */
+    void record(String login, long productId) {
+        change(login, ring -> {
+            ring.push(productId);
+            return Optional.of(ring);
+        });
+    }
+
+    /**
+     * @param login the login of the user
+     * @return the viewed product ids, newest first
+     */
+    long[] read(String login) {
+        return apply(login, Ring::toArray);
+    }
+
+    /**
+     * Takes the changed strips which were not accessed for a while, to write them before they are evicted.
+     *
+     * @param idleNanos how long a strip has to be idle to be taken, {@code 0} takes all changed strips
+     * @return copies of the product ids, newest first, by login
+     */
+    Map<String, long[]> takeChanged(long idleNanos) {
+        return takeChanged(idleNanos, Ring::toArray);
+    }
+
+    /**
+     * A fixed number of product ids, the newest at {@code head} and the older ones in the following slots.
+     */
+    static final class Ring {
+        private final long[] ids;
+        private int head;
+        private int size;
+
+        private Ring(int capacity) {
+            this.ids = new long[capacity];
+        }
+
+        private static Ring of(int capacity, long[] stored) {
+            Ring ring = new Ring(capacity);
+            // Oldest first, hence the newest ends up in front, a shrunk capacity drops the oldest
+            for (int i = Math.min(stored.length, capacity) - 1; i >= 0; i--) {
+                ring.push(stored[i]);
+            }
+            return ring;
+        }
+
+        private void push(long productId) {
+            int age = 0;
+            while (age < size && ids[slotOf(age)] != productId) {
+                age++;
+            }
+            if (age == size) {
+                // Not in the ring, the slot before the head is free or holds the oldest id
+                head = slotOf(ids.length - 1);
+                size = Math.min(size + 1, ids.length);
+            } else {
+                for (; age > 0; age--) {
+                    ids[slotOf(age)] = ids[slotOf(age - 1)];
+                }
+            }
+            ids[head] = productId;
+        }
+
+        private long[] toArray() {
+            long[] copy = new long[size];
+            for (int age = 0; age < size; age++) {
+                copy[age] = ids[slotOf(age)];
+            }
+            return copy;
+        }
+
+        private int slotOf(int age) {
+            return (head + age) % ids.length;
+        }
+    }
+}
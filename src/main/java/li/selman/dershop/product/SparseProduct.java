@@ -0,0 +1,52 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import java.util.Map;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * A product reduced to the fields and links a client asked for, see {@link ProductShape}.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "product", collectionRelation = "products")
+public final class SparseProduct extends RepresentationModel<SparseProduct> {
+
+    private final Map<String, Object> fields;
+
+    SparseProduct(Map<String, Object> fields) {
+        this.fields = fields;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+            || other instanceof SparseProduct && super.equals(other) && fields.equals(((SparseProduct) other).fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + fields.hashCode();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * A product of the "trending now" ranking.
+ *
+ * @author Hasan Selman Kara
+ */
+@Relation(itemRelation = "product", collectionRelation = "products")
+public final class TrendingProduct {
+
+    private final long id;
+    private final String name;
+    private final double score;
+
+    TrendingProduct(long id, String name, double score) {
+        this.id = id;
+        this.name = name;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The approximate number of recent views, older views weigh less.
+     *
+     * @return the score
+     */
+    public double getScore() {
+        return score;
+    }
+}
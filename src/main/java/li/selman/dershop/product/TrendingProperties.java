@@ -0,0 +1,145 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the trending products.
+ *
+ * @author Hasan Selman Kara
+ */
+@ConfigurationProperties(prefix = "dershop.trending")
+public class TrendingProperties {
+
+    /**
+     * How far back the views are counted.
+     */
+    private Duration window = Duration.ofHours(1);
+
+    /**
+     * Number of buckets the window is divided into, the window slides by one bucket at a time.
+     */
+    private int buckets = 6;
+
+    /**
+     * Weight of the views of a bucket relative to the next younger one, between 0 and 1.
+     */
+    private double decay = 0.5;
+
+    /**
+     * Rows of the count-min sketches, the probability of an estimate exceeding the error bound drops exponentially.
+     */
+    private int sketchDepth = 4;
+
+    /**
+     * Cells per row of the count-min sketches, a power of two. The error bound is {@code e / width} of all views.
+     */
+    private int sketchWidth = 4096;
+
+    /**
+     * Number of products tracked as candidates for the ranking.
+     */
+    private int candidates = 1000;
+
+    /**
+     * Maximum number of trending products returned.
+     */
+    private int maxSize = 50;
+
+    /**
+     * How often the counts of this instance are saved and the counts of the other instances are read.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    /**
+     * Name under which this instance saves its counts, the host name if absent.
+     */
+    private String nodeId;
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(int buckets) {
+        this.buckets = buckets;
+    }
+
+    public double getDecay() {
+        return decay;
+    }
+
+    public void setDecay(double decay) {
+        this.decay = decay;
+    }
+
+    public int getSketchDepth() {
+        return sketchDepth;
+    }
+
+    public void setSketchDepth(int sketchDepth) {
+        this.sketchDepth = sketchDepth;
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
+    public void setSketchWidth(int sketchWidth) {
+        this.sketchWidth = sketchWidth;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import li.selman.dershop.app.persistence.TableStatistics;
+import li.selman.dershop.app.persistence.TotalCount;
+import li.selman.dershop.user.dto.AdminUserDto;
+import li.selman.dershop.user.dto.UserDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Lists the users page by page.
+ * <p>
+ * The listings do not count the users, the {@code Link} header points to the {@code next} page as long as there is
+ * one. Pass {@code total=exact} or {@code total=approximate} to get the total in a header, see {@link TotalCount}.
+ *
+ * @author Hasan Selman Kara
+ */
+@RestController
+@RequestMapping("/api")
+public class UserController {
+
+    private static final String USER_TABLE = "dershop_user";
+
+    private final UserService userService;
+    private final TableStatistics tableStatistics;
+
+    public UserController(UserService userService, TableStatistics tableStatistics) {
+        this.userService = userService;
+        this.tableStatistics = tableStatistics;
+    }
+
+    /**
+     * Lists the activated users with their public attributes.
+     *
+     * @param pageable the page, size and sort order
+     * @param total    {@code none}, {@code approximate} or {@code exact}
+     * @return the users of the page
+     */
+    @GetMapping("/users")
+    public ResponseEntity<List<UserDto>> getPublicUsers(
+        Pageable pageable,
+        @RequestParam(name = "total", defaultValue = "none") String total
+    ) {
+        Optional<TotalCount> totalCount = TotalCount.parse(total);
+        if (totalCount.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Slice<UserDto> page = userService.getPublicUsers(pageable);
+        // The estimate covers the not activated users, too
+        HttpHeaders headers = totalCount.get()
+            .headers(userService::countPublicUsers, () -> tableStatistics.estimateRowCount(USER_TABLE));
+        return ResponseEntity.ok().headers(headers).headers(navigationLinks(page)).body(page.getContent());
+    }
+
+    /**
+     * Lists all users with their authorities, for the administration.
+     *
+     * @param pageable the page, size and sort order
+     * @param total    {@code none}, {@code approximate} or {@code exact}
+     * @return the users of the page
+     */
+    @GetMapping("/admin/users")
+    public ResponseEntity<List<AdminUserDto>> getManagedUsers(
+        Pageable pageable,
+        @RequestParam(name = "total", defaultValue = "none") String total
+    ) {
+        Optional<TotalCount> totalCount = TotalCount.parse(total);
+        if (totalCount.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Slice<AdminUserDto> page = userService.getManagedUsers(pageable);
+        HttpHeaders headers = totalCount.get()
+            .headers(userService::countManagedUsers, () -> tableStatistics.estimateRowCount(USER_TABLE));
+        return ResponseEntity.ok().headers(headers).headers(navigationLinks(page)).body(page.getContent());
+    }
+
+    private static HttpHeaders navigationLinks(Slice<?> page) {
+        List<String> links = new ArrayList<>(2);
+        if (page.hasNext()) {
+            links.add(pageLink(page.getNumber() + 1, page.getSize(), "next"));
+        }
+        if (page.hasPrevious()) {
+            links.add(pageLink(page.getNumber() - 1, page.getSize(), "prev"));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (!links.isEmpty()) {
+            headers.set(HttpHeaders.LINK, String.join(", ", links));
+        }
+        return headers;
+    }
+
+    private static String pageLink(int page, int size, String rel) {
+        String uri = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("page", page)
+            .replaceQueryParam("size", size)
+            .toUriString();
+        return "<" + uri + ">; rel=\"" + rel + "\"";
+    }
+}
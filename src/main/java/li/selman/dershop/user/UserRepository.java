@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -44,4 +45,17 @@ public interface UserRepository extends JpaRepository<DerShopUser, Long> {
     Optional<DerShopUser> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Page<DerShopUser> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    /**
+     * Pages through all users without counting them, one additional row is fetched to tell whether there is a next
+     * page.
+     */
+    Slice<DerShopUser> findSliceBy(Pageable pageable);
+
+    /**
+     * Same as {@link #findAllByIdNotNullAndActivatedIsTrue(Pageable)}, but without counting the users.
+     */
+    Slice<DerShopUser> findSliceByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    long countByIdNotNullAndActivatedIsTrue();
 }
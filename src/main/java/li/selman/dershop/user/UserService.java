@@ -34,6 +34,7 @@ import li.selman.dershop.user.dto.UserDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -295,6 +296,38 @@ public class UserService {
         return userRepository.findAllByIdNotNullAndActivatedIsTrue(pageable).map(UserDto::new);
     }
 
+    /**
+     * Like {@link #getAllManagedUsers(Pageable)}, but without the {@code count(*)} of a {@link Page}.
+     *
+     * @param pageable the page to load
+     * @return the users of the page and whether there is a next one
+     */
+    @Transactional(readOnly = true)
+    public Slice<AdminUserDto> getManagedUsers(Pageable pageable) {
+        return userRepository.findSliceBy(pageable).map(AdminUserDto::new);
+    }
+
+    /**
+     * Like {@link #getAllPublicUsers(Pageable)}, but without the {@code count(*)} of a {@link Page}.
+     *
+     * @param pageable the page to load
+     * @return the activated users of the page and whether there is a next one
+     */
+    @Transactional(readOnly = true)
+    public Slice<UserDto> getPublicUsers(Pageable pageable) {
+        return userRepository.findSliceByIdNotNullAndActivatedIsTrue(pageable).map(UserDto::new);
+    }
+
+    @Transactional(readOnly = true)
+    public long countManagedUsers() {
+        return userRepository.count();
+    }
+
+    @Transactional(readOnly = true)
+    public long countPublicUsers() {
+        return userRepository.countByIdNotNullAndActivatedIsTrue();
+    }
+
     @Transactional(readOnly = true)
     public Optional<DerShopUser> getUserWithAuthoritiesByLogin(String login) {
         return userRepository.findOneWithAuthoritiesByLogin(login);
@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ShardedStoreTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong();
+    private final ShardedStore<String, List<String>> store = new ShardedStore<>(4, key -> {
+        loads.incrementAndGet();
+        return "alice".equals(key) ? new ArrayList<>(List.of("a")) : new ArrayList<>();
+    }, now::get);
+
+    private List<String> read(String key) {
+        return store.apply(key, List::copyOf);
+    }
+
+    @Test
+    void loadsAValueOnlyOnce() {
+        assertThat(read("alice")).containsExactly("a");
+        store.change("alice", values -> Optional.of(values.add("b")));
+
+        assertThat(read("alice")).containsExactly("a", "b");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void writesSeveralChangesOfAValueOnce() {
+        store.change("bob", values -> Optional.of(values.add("a")));
+        store.change("bob", values -> Optional.of(values.add("b")));
+
+        Map<String, List<String>> changed = store.takeChanged(0, List::copyOf);
+
+        assertThat(changed).containsOnlyKeys("bob");
+        assertThat(changed.get("bob")).containsExactly("a", "b");
+        assertThat(store.takeChanged(0, List::copyOf)).isEmpty();
+    }
+
+    @Test
+    void doesNotWriteRejectedChanges() {
+        assertThat(store.change("bob", values -> Optional.empty())).isEmpty();
+
+        assertThat(store.takeChanged(0, List::copyOf)).isEmpty();
+    }
+
+    @Test
+    void takesOnlyTheChangedIdleValues() {
+        read("alice");
+        store.change("bob", values -> Optional.of(values.add("a")));
+        now.set(100);
+        store.change("carol", values -> Optional.of(values.add("b")));
+
+        assertThat(store.takeChanged(100, List::copyOf)).containsOnlyKeys("bob");
+        assertThat(store.takeChanged(0, List::copyOf)).containsOnlyKeys("carol");
+    }
+
+    @Test
+    void writesValuesAgainWhichAreMarkedAsChanged() {
+        store.change("bob", values -> Optional.of(values.add("a")));
+        store.markChanged(store.takeChanged(0, List::copyOf).keySet());
+
+        assertThat(store.takeChanged(0, List::copyOf)).containsOnlyKeys("bob");
+    }
+
+    @Test
+    void evictsIdleValuesOnceTheyAreWritten() {
+        read("alice");
+        store.change("bob", values -> Optional.of(values.add("a")));
+        now.set(100);
+
+        assertThat(store.evictIdle(100)).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+
+        store.takeChanged(0, List::copyOf);
+        assertThat(store.evictIdle(100)).isEqualTo(1);
+        assertThat(store.size()).isZero();
+
+        read("alice");
+        assertThat(loads).hasValue(3);
+    }
+}
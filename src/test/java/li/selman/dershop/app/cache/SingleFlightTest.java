@@ -0,0 +1,154 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.app.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 8;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesOneLoadBetweenConcurrentCallers() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), registry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = startConcurrentLoads(singleFlight, () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "value";
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("value");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(loads("follower")).isEqualTo(FOLLOWERS);
+    }
+
+    @Test
+    void rethrowsTheFailureToEveryCaller() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), registry);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        List<Future<String>> results = startConcurrentLoads(singleFlight, () -> {
+            await(release);
+            throw failure;
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+        }
+    }
+
+    @Test
+    void followersGiveUpAfterTheTimeout() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofMillis(50), registry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = startConcurrentLoads(singleFlight, () -> {
+            await(release);
+            return "value";
+        });
+
+        for (Future<String> result : results.subList(1, results.size())) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(SingleFlightTimeoutException.class);
+        }
+        release.countDown();
+        assertThat(results.get(0).get(10, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(registry.counter("single.flight.timeouts", "name", "test").count()).isEqualTo(FOLLOWERS);
+    }
+
+    @Test
+    void loadsAgainOnceTheLoadCompleted() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), registry);
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.load("key", () -> "value" + calls.incrementAndGet());
+
+        assertThat(singleFlight.load("key", () -> "value" + calls.incrementAndGet())).isEqualTo("value2");
+        assertThat(loads("leader")).isEqualTo(2);
+    }
+
+    /**
+     * Starts the leader, waits until it is loading and starts the followers, which are counted before they block.
+     *
+     * @return the result of the leader first, then the ones of the followers
+     */
+    private List<Future<String>> startConcurrentLoads(SingleFlight<String, String> singleFlight,
+                                                      Supplier<String> loader)
+        throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.load("key", () -> {
+            loading.countDown();
+            return loader.get();
+        })));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load("key", loader)));
+        }
+        while (loads("follower") < FOLLOWERS) {
+            Thread.onSpinWait();
+        }
+        return results;
+    }
+
+    private double loads(String role) {
+        return registry.counter("single.flight.loads", "name", "test", "role", role).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
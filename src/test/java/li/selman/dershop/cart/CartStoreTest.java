@@ -0,0 +1,60 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.cart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class CartStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CartStore store =
+        new CartStore(4, login -> "alice".equals(login) ? Map.of(1L, 2) : Map.of(), now::get);
+
+    @Test
+    void changesACopyOfTheStoredCart() {
+        assertThat(store.read("alice").getItems()).extracting(CartItem::getProductId).containsExactly(1L);
+        store.update("alice", items -> items.put(2L, 1) == null);
+
+        assertThat(store.read("alice").getTotalQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    void writesSeveralChangesOfACartOnce() {
+        store.update("bob", items -> items.put(1L, 1) == null);
+        store.update("bob", items -> items.put(2L, 1) == null);
+        store.update("bob", items -> items.remove(1L) != null);
+
+        Map<String, Map<Long, Integer>> changed = store.takeChanged();
+
+        assertThat(changed).containsOnlyKeys("bob");
+        assertThat(changed.get("bob")).containsExactly(Map.entry(2L, 1));
+        assertThat(store.takeChanged()).isEmpty();
+    }
+
+    @Test
+    void doesNotWriteRejectedChanges() {
+        assertThat(store.update("bob", items -> false)).isEmpty();
+
+        assertThat(store.takeChanged()).isEmpty();
+    }
+}
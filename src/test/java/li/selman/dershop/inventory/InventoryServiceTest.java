@@ -0,0 +1,100 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class InventoryServiceTest {
+
+    private final ProductStockRepository stockRepo = mock(ProductStockRepository.class);
+    private final InventoryService inventory = new InventoryService(stockRepo, mock(TransactionTemplate.class),
+        new InventoryProperties());
+
+    private static final int LEASE_SIZE = new InventoryProperties().getLeaseSize();
+    private static final int LOW_STOCK_THRESHOLD = new InventoryProperties().getLowStockThreshold();
+
+    @Test
+    void reservesAllLinesOrNone() {
+        when(stockRepo.leaseAll(Map.of(1L, 3L, 2L, 1L), LEASE_SIZE, LOW_STOCK_THRESHOLD))
+            .thenReturn(Map.of(1L, (long) LEASE_SIZE));
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(1L, 3);
+        lines.put(2L, 1);
+
+        assertThat(inventory.reserveAll(lines)).containsExactly(2L);
+        assertThat(inventory.available(1L)).isEqualTo(LEASE_SIZE);
+    }
+
+    @Test
+    void reservesAllLines() {
+        when(stockRepo.leaseAll(Map.of(1L, 3L, 2L, 1L), LEASE_SIZE, LOW_STOCK_THRESHOLD))
+            .thenReturn(Map.of(1L, (long) LEASE_SIZE, 2L, (long) LEASE_SIZE));
+
+        assertThat(inventory.reserveAll(Map.of(1L, 3, 2L, 1))).isEmpty();
+        assertThat(inventory.available(1L)).isEqualTo(LEASE_SIZE - 3);
+    }
+
+    @Test
+    void reservesABatchInOrderWithOneStatement() {
+        when(stockRepo.leaseAll(Map.of(1L, 5L), LEASE_SIZE, LOW_STOCK_THRESHOLD)).thenReturn(Map.of(1L, 3L));
+
+        List<List<Long>> unavailable = inventory.reserveBatch(List.of(Map.of(1L, 2), Map.of(1L, 2), Map.of(1L, 1)));
+
+        assertThat(unavailable).containsExactly(List.of(), List.of(1L), List.of());
+        assertThat(inventory.available(1L)).isZero();
+        verify(stockRepo, times(1)).leaseAll(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void keepsTheSpareUnitsIfTheDatabaseFails() {
+        when(stockRepo.lease(1L, LEASE_SIZE, LOW_STOCK_THRESHOLD)).thenReturn(true);
+        assertThat(inventory.reserve(1L, 1)).isTrue();
+        when(stockRepo.lease(anyLong(), anyLong(), anyLong())).thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThatThrownBy(() -> inventory.reserve(1L, LEASE_SIZE)).isInstanceOf(QueryTimeoutException.class);
+        assertThat(inventory.available(1L)).isEqualTo(LEASE_SIZE - 1);
+    }
+
+    @Test
+    void keepsTheLeasesIfTheBatchFails() {
+        when(stockRepo.lease(1L, LEASE_SIZE, LOW_STOCK_THRESHOLD)).thenReturn(true);
+        assertThat(inventory.reserve(1L, 1)).isTrue();
+        when(stockRepo.leaseAll(any(), anyLong(), anyLong())).thenThrow(new QueryTimeoutException("timeout"));
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        lines.put(1L, 3);
+        lines.put(2L, 1);
+
+        assertThatThrownBy(() -> inventory.reserveAll(lines)).isInstanceOf(QueryTimeoutException.class);
+        assertThat(inventory.available(1L)).isEqualTo(LEASE_SIZE - 1);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.inventory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class StripedCounterTest {
+
+    @Test
+    void neverHandsOutMoreThanItHolds() throws Exception {
+        StripedCounter counter = new StripedCounter(4);
+        counter.add(10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> acquired = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                acquired.add(executor.submit(() -> {
+                    long units = 0;
+                    while (counter.tryAcquire(3)) {
+                        units += 3;
+                    }
+                    return units;
+                }));
+            }
+
+            long total = 0;
+            for (Future<Long> units : acquired) {
+                total += units.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(total + counter.sum()).isEqualTo(10_000);
+            assertThat(counter.sum()).isBetween(0L, 2L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failsIfNoCellHoldsEnoughUnits() {
+        StripedCounter counter = new StripedCounter(2);
+        counter.add(5);
+
+        assertThat(counter.tryAcquire(6)).isFalse();
+        assertThat(counter.tryAcquire(5)).isTrue();
+        assertThat(counter.tryAcquire(1)).isFalse();
+    }
+
+    @Test
+    void drainTakesAllUnits() {
+        StripedCounter counter = new StripedCounter(8);
+        counter.add(7);
+
+        assertThat(counter.drain()).isEqualTo(7);
+        assertThat(counter.sum()).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.order;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import li.selman.dershop.inventory.InventoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class OrderPipelineTest {
+
+    private static final List<OrderLine> LINES = List.of(new OrderLine(1L, 2));
+
+    private final OrderRepository orderRepo = mock(OrderRepository.class);
+    private final InventoryService inventory = mock(InventoryService.class);
+    private final OrderProperties properties = new OrderProperties();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final CountDownLatch firstBatchReleased = new CountDownLatch(1);
+    private OrderPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        firstBatchReleased.countDown();
+        pipeline.stop();
+    }
+
+    @Test
+    void placesTheCheckoutsQueuedMeanwhileAsOneBatch() throws Exception {
+        start();
+        CompletableFuture<CheckoutResult> first = pipeline.submit("alice", LINES);
+        awaitBatches(1);
+        List<CompletableFuture<CheckoutResult>> next = List.of(pipeline.submit("bob", LINES),
+            pipeline.submit("carol", LINES), pipeline.submit("dave", LINES));
+        firstBatchReleased.countDown();
+
+        assertThat(status(first)).isEqualTo(CheckoutResult.Status.PLACED);
+        for (CompletableFuture<CheckoutResult> checkout : next) {
+            assertThat(status(checkout)).isEqualTo(CheckoutResult.Status.PLACED);
+        }
+        assertThat(batchSizes).containsExactly(1, 3);
+    }
+
+    @Test
+    void rejectsCheckoutsWaitingTooLong() throws Exception {
+        properties.setMaxQueueTime(Duration.ofMillis(10));
+        start();
+        CompletableFuture<CheckoutResult> first = pipeline.submit("alice", LINES);
+        awaitBatches(1);
+        CompletableFuture<CheckoutResult> late = pipeline.submit("bob", LINES);
+        Thread.sleep(50);
+        firstBatchReleased.countDown();
+
+        assertThat(status(first)).isEqualTo(CheckoutResult.Status.PLACED);
+        assertThat(status(late)).isEqualTo(CheckoutResult.Status.REJECTED);
+        assertThat(batchSizes).containsExactly(1);
+    }
+
+    @Test
+    void releasesTheReservationsIfTheOrdersCannotBeInserted() {
+        firstBatchReleased.countDown();
+        doThrow(new QueryTimeoutException("timeout")).when(orderRepo).insertAll(any());
+        start();
+
+        CompletableFuture<CheckoutResult> checkout = pipeline.submit("alice", LINES);
+
+        assertThat(checkout).failsWithin(5, TimeUnit.SECONDS);
+        verify(inventory).releaseAll(Map.of(1L, 2));
+    }
+
+    private void start() {
+        when(orderRepo.nextIds(anyInt())).thenAnswer(invocation -> LongStream
+            .rangeClosed(1, invocation.<Integer>getArgument(0)).boxed().collect(Collectors.toList()));
+        when(inventory.reserveBatch(any())).thenAnswer(invocation -> {
+            List<Map<Long, Integer>> orders = invocation.getArgument(0);
+            synchronized (batchSizes) {
+                batchSizes.add(orders.size());
+                batchSizes.notifyAll();
+            }
+            firstBatchReleased.await();
+            return orders.stream().map(order -> List.<Long>of()).collect(Collectors.toList());
+        });
+        pipeline = new OrderPipeline(orderRepo, inventory,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), properties, new SimpleMeterRegistry());
+        pipeline.start();
+    }
+
+    private void awaitBatches(int count) throws InterruptedException {
+        synchronized (batchSizes) {
+            while (batchSizes.size() < count) {
+                batchSizes.wait(5000);
+            }
+        }
+    }
+
+    private static CheckoutResult.Status status(CompletableFuture<CheckoutResult> checkout)
+        throws ExecutionException, InterruptedException, TimeoutException {
+        return checkout.get(5, TimeUnit.SECONDS).getStatus();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import li.selman.dershop.app.ProfileConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class AsyncProductReadControllerTest {
+
+    private static final ProductController PRODUCT_CONTROLLER = mock(ProductController.class);
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles(ProfileConstants.ASYNC_READS);
+        context.register(TestConfiguration.class);
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        when(PRODUCT_CONTROLLER.findById(eq(1L), any(), any(), any())).thenAnswer(invocation -> {
+            WebRequest webRequest = invocation.getArgument(3);
+            if (webRequest.checkNotModified("1-0")) {
+                return null;
+            }
+            // The links are rendered from the current request
+            String self = ServletUriComponentsBuilder.fromCurrentRequest().toUriString();
+            return ResponseEntity.ok(new RepresentationModel<>().add(Link.of(self)));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void servesTheReadsAsynchronously() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"1-0\""))
+            .andExpect(jsonPath("$.links[0].href").value("http://localhost/api/products/1"));
+    }
+
+    @Test
+    void answersConditionalRequests() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/products/1").header("If-None-Match", "\"1-0\""))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    void leavesTheOtherResourcesToTheirControllers() throws Exception {
+        mockMvc.perform(get("/api/products/search"))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(content().string("search"));
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import(AsyncProductReadConfiguration.class)
+    static class TestConfiguration {
+
+        @Bean
+        AsyncProductReadController asyncProductReadController() {
+            return new AsyncProductReadController(PRODUCT_CONTROLLER, new ProductProperties(),
+                new SimpleMeterRegistry());
+        }
+
+        @Bean
+        SearchController searchController() {
+            return new SearchController();
+        }
+    }
+
+    @RestController
+    static class SearchController {
+
+        @GetMapping("/api/products/search")
+        String search() {
+            return "search";
+        }
+    }
+}
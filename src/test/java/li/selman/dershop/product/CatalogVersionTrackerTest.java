@@ -0,0 +1,59 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class CatalogVersionTrackerTest {
+
+    private final ProductChangeRepository changeRepo = mock(ProductChangeRepository.class);
+
+    @Test
+    void readsTheVersionOnceUntilTheCatalogChanges() {
+        CatalogVersionTracker tracker = new CatalogVersionTracker(changeRepo, new ProductProperties());
+        when(changeRepo.findCatalogVersion()).thenReturn(new CatalogVersion(1, Instant.EPOCH),
+            new CatalogVersion(2, Instant.EPOCH));
+
+        assertThat(tracker.current().getSeq()).isEqualTo(1);
+        assertThat(tracker.current().getSeq()).isEqualTo(1);
+        tracker.onProductChanged(null);
+        assertThat(tracker.current().getSeq()).isEqualTo(2);
+        verify(changeRepo, times(2)).findCatalogVersion();
+    }
+
+    @Test
+    void readsTheVersionAgainOnceItIsTooOld() {
+        ProductProperties properties = new ProductProperties();
+        properties.setCatalogVersionMaxAge(Duration.ZERO);
+        CatalogVersionTracker tracker = new CatalogVersionTracker(changeRepo, properties);
+        when(changeRepo.findCatalogVersion()).thenReturn(new CatalogVersion(1, Instant.EPOCH),
+            new CatalogVersion(2, Instant.EPOCH));
+
+        assertThat(tracker.current().getSeq()).isEqualTo(1);
+        assertThat(tracker.current().getSeq()).isEqualTo(2);
+    }
+}
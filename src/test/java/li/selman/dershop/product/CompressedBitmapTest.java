@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class CompressedBitmapTest {
+
+    @Test
+    void behavesLikeABitSet() {
+        SplittableRandom random = new SplittableRandom(42);
+        CompressedBitmap dense = new CompressedBitmap();
+        CompressedBitmap sparse = new CompressedBitmap();
+        BitSet expectedDense = new BitSet();
+        BitSet expectedSparse = new BitSet();
+        // Enough values per chunk to turn the arrays into bitmaps
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(3 << 16);
+            if (random.nextInt(4) == 0) {
+                dense.remove(value);
+                expectedDense.clear(value);
+            } else {
+                dense.add(value);
+                expectedDense.set(value);
+            }
+            int sparseValue = random.nextInt(1 << 20);
+            sparse.add(sparseValue);
+            expectedSparse.set(sparseValue);
+        }
+
+        assertSame(dense, expectedDense);
+        assertSame(sparse, expectedSparse);
+
+        BitSet expectedAnd = (BitSet) expectedDense.clone();
+        expectedAnd.and(expectedSparse);
+        assertSame(dense.and(sparse), expectedAnd);
+        assertThat(dense.andCardinality(sparse)).isEqualTo(expectedAnd.cardinality());
+
+        BitSet expectedOr = (BitSet) expectedDense.clone();
+        expectedOr.or(expectedSparse);
+        assertSame(dense.or(sparse), expectedOr);
+        // The operands are left untouched
+        assertSame(dense, expectedDense);
+
+        // Few enough values per chunk to turn the bitmaps back into arrays
+        for (int value = 0; value < 3 << 16; value++) {
+            if (value % 20 != 0) {
+                dense.remove(value);
+                expectedDense.clear(value);
+            }
+        }
+        assertSame(dense, expectedDense);
+        assertThat(dense.and(sparse).cardinality()).isEqualTo(dense.andCardinality(sparse));
+    }
+
+    @Test
+    void removingTheLastValueOfAChunkDropsIt() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(70_000);
+        bitmap.remove(70_000);
+
+        assertThat(bitmap.isEmpty()).isTrue();
+        assertThat(bitmap.next(0)).isEqualTo(-1);
+    }
+
+    private static void assertSame(CompressedBitmap actual, BitSet expected) {
+        assertThat(actual.cardinality()).isEqualTo(expected.cardinality());
+        int value = actual.next(0);
+        for (int bit = expected.nextSetBit(0); bit >= 0; bit = expected.nextSetBit(bit + 1)) {
+            assertThat(value).isEqualTo(bit);
+            assertThat(actual.contains(bit)).isTrue();
+            value = actual.next(value + 1);
+        }
+        assertThat(value).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class CountMinSketchTest {
+
+    @Test
+    void neverUndercountsAndStaysWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        long[] counts = new long[10_000];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 100_000; i++) {
+            int item = random.nextInt(counts.length);
+            counts[item]++;
+            sketch.add(item, 1);
+        }
+
+        int outsideBound = 0;
+        for (int item = 0; item < counts.length; item++) {
+            long estimate = sketch.estimate(item);
+            assertThat(estimate).isGreaterThanOrEqualTo(counts[item]);
+            if (estimate - counts[item] > Math.E / 1024 * 100_000) {
+                outsideBound++;
+            }
+        }
+        // exp(-4) of the items may exceed the bound
+        assertThat(outsideBound).isLessThan(counts.length / 50);
+    }
+
+    @Test
+    void mergeAddsTheCounts() {
+        CountMinSketch first = new CountMinSketch(2, 64);
+        CountMinSketch second = new CountMinSketch(2, 64);
+        first.add(42L, 3);
+        second.add(42L, 4);
+
+        first.merge(second);
+
+        assertThat(first.estimate(42L)).isEqualTo(7);
+        assertThat(second.estimate(42L)).isEqualTo(4);
+    }
+}
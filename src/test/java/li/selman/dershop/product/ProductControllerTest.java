@@ -15,6 +15,11 @@
  */
 package li.selman.dershop.product;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.documentationConfiguration;
@@ -23,21 +28,38 @@ import static org.springframework.restdocs.operation.preprocess.Preprocessors.re
 import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
 import static org.springframework.restdocs.payload.PayloadDocumentation.responseFields;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import li.selman.dershop.IntegrationTest;
+import li.selman.dershop.app.persistence.TotalCount;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.restdocs.RestDocumentationContextProvider;
 import org.springframework.restdocs.RestDocumentationExtension;
 import org.springframework.restdocs.payload.FieldDescriptor;
 import org.springframework.restdocs.payload.JsonFieldType;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -65,6 +87,18 @@ class ProductControllerTest {
     @MockBean
     ProductRepository productRepo;
 
+    @MockBean
+    ProductChangeRepository changeRepo;
+
+    @MockBean
+    CatalogVersionTracker catalogVersion;
+
+    @MockBean
+    RecentlyViewedRepository recentlyViewedRepo;
+
+    @Autowired
+    private ProductFacetService facetService;
+
     @BeforeEach
     public void setUp(RestDocumentationContextProvider restDocumentation) {
 
@@ -82,11 +116,12 @@ class ProductControllerTest {
     @Test
     void findAll() throws Exception {
         // given
-        when(productRepo.findAll()).thenReturn(List.of(
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
             new Product(1L, "Product A"),
             new Product(2L, "Product B"),
             new Product(3L, "Product C")
-        ));
+        )));
 
         FieldDescriptor[] productDescriptor = getProductFieldDescriptor();
 
@@ -101,6 +136,418 @@ class ProductControllerTest {
             .andDo(document("products-findAll", responseFields(productDescriptor)));
     }
 
+    @Test
+    void findAllNextPage() throws Exception {
+        // given
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
+            new Product(1L, "Product A"),
+            new Product(2L, "Product B")
+        ), PageRequest.of(0, 2), true));
+        String nextCursor = ProductCursor.after(2L).encode();
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products").param("size", "2").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._links.next.href").value("http://localhost/api/products?cursor=" + nextCursor
+                + "&size=2"));
+
+        // when
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(2L), any())).thenReturn(new SliceImpl<>(List.of(
+            new Product(3L, "Product C")
+        ), PageRequest.of(0, 2), false));
+        result = this.mockMvc.perform(
+            get("/api/products").param("cursor", nextCursor).param("size", "2")
+                .header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$..products[0].name").value("Product C"))
+            .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @Test
+    void findAllSummaries() throws Exception {
+        // given
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findSummariesByIdGreaterThan(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
+            new ProductSummary(1L, "Product A"),
+            new ProductSummary(2L, "Product B")
+        ), PageRequest.of(0, 2), true));
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products").param("view", "summary").param("size", "2")
+                .header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[1].name").value("Product B"))
+            .andExpect(jsonPath("$._embedded.products[0]._links").doesNotExist())
+            .andExpect(jsonPath("$._links.next.href").value("http://localhost/api/products?view=summary&cursor="
+                + ProductCursor.after(2L).encode() + "&size=2"));
+    }
+
+    @Test
+    void findAllById() throws Exception {
+        // given
+        when(productRepo.findAllById(any())).thenReturn(List.of(
+            new Product(1L, "Product A"),
+            new Product(3L, "Product C")
+        ));
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products").param("ids", "3,2,1").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[0].name").value("Product C"))
+            .andExpect(jsonPath("$._embedded.products[1].id").value(2))
+            .andExpect(jsonPath("$._embedded.products[1].notFound").value(true))
+            .andExpect(jsonPath("$._embedded.products[2].name").value("Product A"));
+    }
+
+    @Test
+    void findAllByIdWithTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, 101).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        this.mockMvc.perform(get("/api/products").param("ids", ids))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllWithExactTotal() throws Exception {
+        // given
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
+            new Product(1L, "Product A")
+        )));
+        when(productRepo.count()).thenReturn(3L);
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products").param("total", "exact").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(header().string(TotalCount.EXACT_HEADER, "3"));
+    }
+
+    @Test
+    void findAllWithUnknownTotal() throws Exception {
+        this.mockMvc.perform(get("/api/products").param("total", "roughly"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllWithSparseFieldsets() throws Exception {
+        // given
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
+            new Product(1L, "Product A")
+        )));
+
+        // when
+        ResultActions result = this.mockMvc.perform(get("/api/products")
+            .param("fields", "id").param("links", "none").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[0].id").value(1))
+            .andExpect(jsonPath("$._embedded.products[0].name").doesNotExist())
+            .andExpect(jsonPath("$._embedded.products[0]._links").doesNotExist());
+
+        // when
+        result = this.mockMvc.perform(get("/api/products")
+            .param("links", "minimal").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[0].name").value("Product A"))
+            .andExpect(jsonPath("$._embedded.products[0]._links.self.href").value("http://localhost/api/products/1"))
+            .andExpect(jsonPath("$._embedded.products[0]._links.image").doesNotExist());
+    }
+
+    @Test
+    void findAllWithUnknownField() throws Exception {
+        this.mockMvc.perform(get("/api/products").param("fields", "id,colour"))
+            .andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/products").param("links", "some"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllAsCbor() throws Exception {
+        // given
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(3, Instant.now()));
+        when(productRepo.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any())).thenReturn(new SliceImpl<>(List.of(
+            new Product(1L, "Product A")
+        )));
+
+        // when
+        byte[] body = this.mockMvc.perform(get("/api/products").header("Accept", "application/cbor"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/cbor"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // then
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(page.at("/_embedded/products/0/name").asText()).isEqualTo("Product A");
+        assertThat(page.at("/_embedded/products/0/_links/self/href").asText())
+            .isEqualTo("http://localhost/api/products/1");
+    }
+
+    @Test
+    void findAllWithMalformedCursor() throws Exception {
+        this.mockMvc.perform(get("/api/products").param("cursor", "not-a-cursor"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void filter() throws Exception {
+        // given
+        List<Product> products = List.of(
+            new Product(1L, "Emmi Milk", new BigDecimal("1.60"), "Dairy", "Emmi"),
+            new Product(2L, "Coop Butter", new BigDecimal("3.20"), "Dairy", "Coop"),
+            new Product(3L, "Zweifel Chips", new BigDecimal("4.50"), "Snacks", "Zweifel"));
+        products.forEach(product -> facetService.onProductChanged(ProductChangedEvent.saved(product)));
+        when(productRepo.findAllById(any())).thenReturn(products.subList(0, 2));
+
+        // when
+        ResultActions result = this.mockMvc.perform(get("/api/products/filter")
+            .param("category", "Dairy")
+            .param("price", "2-5")
+            .param("fields", "name,price")
+            .header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(1))
+            .andExpect(jsonPath("$._embedded.products[0].name").value("Coop Butter"))
+            .andExpect(jsonPath("$.facets.category[?(@.value == 'Snacks')].count").value(1))
+            .andExpect(jsonPath("$.facets.price[?(@.value == '0-2')].count").value(1))
+            .andDo(document("products-filter"));
+    }
+
+    @Test
+    void filterWithUnknownPriceRange() throws Exception {
+        this.mockMvc.perform(get("/api/products/filter").param("price", "3-4"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllNotModified() throws Exception {
+        // given
+        CatalogVersion version = new CatalogVersion(3, Instant.parse("2021-05-07T10:45:00Z"));
+        when(catalogVersion.current()).thenReturn(version);
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products").header("If-None-Match", "\"" + version.getETag() + "\""));
+
+        // then
+        result
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"" + version.getETag() + "\""))
+            .andExpect(header().stringValues("Vary", hasItem("Accept")))
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    void findByIdNotModified() throws Exception {
+        // given
+        when(productRepo.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product A")));
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products/1").header("Accept", "application/hal+json"));
+
+        // then
+        String eTag = result
+            .andExpect(status().isOk())
+            .andExpect(header().exists("Last-Modified"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        // when
+        result = this.mockMvc.perform(get("/api/products/1")
+            .header("Accept", "application/hal+json").header("If-None-Match", eTag));
+
+        // then
+        result
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    void findByIdLinksTheImageOnce() throws Exception {
+        // given
+        when(productRepo.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product A")));
+
+        // when
+        ResultActions result = this.mockMvc.perform(get("/api/products/1").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._links.image.href").isString());
+    }
+
+    @Test
+    void findByIdAfterAFailedUpdate() throws Exception {
+        // given
+        when(productRepo.findById(42L)).thenAnswer(invocation -> Optional.of(new Product(42L, "Product A")));
+        when(productRepo.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 42L));
+        this.mockMvc.perform(get("/api/products/42")).andExpect(status().isOk());
+        this.mockMvc.perform(put("/products/42")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Product B\"}"))
+            .andExpect(status().isConflict());
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products/42").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Product A"));
+    }
+
+    @Test
+    void findByIdTagsEveryRepresentation() throws Exception {
+        // given
+        when(productRepo.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product A")));
+
+        // when
+        String json = this.mockMvc.perform(get("/api/products/1").header("Accept", "application/hal+json"))
+            .andReturn().getResponse().getHeader("ETag");
+        String cbor = this.mockMvc.perform(get("/api/products/1").header("Accept", "application/cbor"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        // then
+        assertThat(cbor).isNotEqualTo(json);
+    }
+
+    @Test
+    void findTrending() throws Exception {
+        // given
+        when(productRepo.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product A")));
+        when(productRepo.findAllById(any())).thenReturn(List.of(new Product(1L, "Product A")));
+        this.mockMvc.perform(get("/api/products/1")).andExpect(status().isOk());
+
+        // when
+        ResultActions result = this.mockMvc.perform(get("/api/products/trending")
+            .param("size", "5").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[?(@.id == 1)].name").value("Product A"))
+            .andExpect(jsonPath("$._embedded.products[?(@.id == 1)]._links.self.href")
+                .value("http://localhost/api/products/1"))
+            .andDo(document("products-trending"));
+    }
+
+    @Test
+    @WithMockUser("alice")
+    void findRecentlyViewed() throws Exception {
+        // given
+        when(recentlyViewedRepo.findProductIds("alice")).thenReturn(new long[0]);
+        when(productRepo.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product A")));
+        when(productRepo.findById(2L)).thenReturn(Optional.of(new Product(2L, "Product B")));
+        when(productRepo.findAllById(any()))
+            .thenReturn(List.of(new Product(1L, "Product A"), new Product(2L, "Product B")));
+        this.mockMvc.perform(get("/api/products/1")).andExpect(status().isOk());
+        this.mockMvc.perform(get("/api/products/2")).andExpect(status().isOk());
+        this.mockMvc.perform(get("/api/products/1")).andExpect(status().isOk());
+
+        // when
+        ResultActions result = this.mockMvc.perform(get("/api/products/recent")
+            .param("size", "5").header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.products[*].id").value(contains(1, 2)))
+            .andExpect(jsonPath("$._embedded.products[0]._links.self.href").value("http://localhost/api/products/1"))
+            .andDo(document("products-recent"));
+    }
+
+    @Test
+    void findRecentlyViewedRequiresALogin() throws Exception {
+        this.mockMvc.perform(get("/api/products/recent")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser("alice")
+    void findRecentlyViewedRejectsAnEmptySize() throws Exception {
+        this.mockMvc.perform(get("/api/products/recent").param("size", "0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findChanges() throws Exception {
+        // given
+        Instant now = Instant.now();
+        when(changeRepo.findHorizon()).thenReturn(0L);
+        when(changeRepo.findBySeqGreaterThanOrderBySeqAsc(eq(10L), any())).thenReturn(new SliceImpl<>(List.of(
+            new ProductChange(11L, 1L, ProductChange.Operation.UPDATE, now),
+            new ProductChange(12L, 2L, ProductChange.Operation.DELETE, now)
+        ), PageRequest.of(0, 2), true));
+        when(productRepo.findAllById(any())).thenReturn(List.of(new Product(1L, "Product A")));
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products/changes").param("since", "10").param("size", "2")
+                .header("Accept", "application/hal+json"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$._embedded.changes[0].operation").value("UPDATE"))
+            .andExpect(jsonPath("$._embedded.changes[0].name").value("Product A"))
+            .andExpect(jsonPath("$._embedded.changes[1].operation").value("DELETE"))
+            .andExpect(jsonPath("$._embedded.changes[1].name").doesNotExist())
+            .andExpect(jsonPath("$._links.next.href").value("http://localhost/api/products/changes?since=12&size=2"));
+    }
+
+    @Test
+    void findChangesBeyondTheHorizon() throws Exception {
+        when(changeRepo.findHorizon()).thenReturn(100L);
+
+        this.mockMvc.perform(get("/api/products/changes").param("since", "10"))
+            .andExpect(status().isGone());
+    }
+
+    @Test
+    void export() throws Exception {
+        // given
+        when(productRepo.streamAllByOrderByIdAsc()).thenReturn(Stream.of(
+            new Product(1L, "Product A", new BigDecimal("9.90"), "Food", "Acme"),
+            new Product(2L, "Product B")
+        ));
+
+        // when
+        ResultActions result = this.mockMvc.perform(
+            get("/api/products/export").header("Accept", "application/x-ndjson"));
+
+        // then
+        result
+            .andExpect(status().isOk())
+            .andExpect(content().string("{\"id\":1,\"name\":\"Product A\",\"price\":9.90,\"category\":\"Food\","
+                + "\"brand\":\"Acme\"}\n{\"id\":2,\"name\":\"Product B\"}\n"));
+    }
+
     private FieldDescriptor[] getProductFieldDescriptor() {
         return new FieldDescriptor[]{
             fieldWithPath("_links").ignored(),
@@ -112,6 +559,12 @@ class ProductControllerTest {
                 .description("The unique id of the product entity").type(JsonFieldType.NUMBER),
             fieldWithPath("_embedded.products[].name")
                 .description("The name of the product").type(JsonFieldType.STRING),
+            fieldWithPath("_embedded.products[].price")
+                .description("The price of the product").type(JsonFieldType.NUMBER).optional(),
+            fieldWithPath("_embedded.products[].category")
+                .description("The category of the product").type(JsonFieldType.STRING).optional(),
+            fieldWithPath("_embedded.products[].brand")
+                .description("The brand of the product").type(JsonFieldType.STRING).optional(),
 
             fieldWithPath("_embedded.products[]._links").ignored(),
 
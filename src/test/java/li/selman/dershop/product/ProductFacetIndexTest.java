@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductFacetIndexTest {
+
+    private final ProductFacetIndex index = new ProductFacetIndex(
+        List.of(BigDecimal.valueOf(5), new BigDecimal("10.00")), 16);
+
+    @Test
+    void countsEachFacetWithTheFiltersOfTheOthers() {
+        index.index(1L, "Dairy", "Emmi", new BigDecimal("1.20"));
+        index.index(2L, "Dairy", "Coop", new BigDecimal("7.50"));
+        index.index(3L, "Snacks", "Zweifel", new BigDecimal("3.90"));
+        index.index(4L, "Snacks", "Coop", new BigDecimal("12.00"));
+
+        ProductFacetIndex.Result result = index.filter(
+            Map.of(ProductFacetIndex.Facet.CATEGORY, Set.of("Dairy")), 0, 10, 10);
+
+        assertThat(result.getProductIds()).containsExactly(1L, 2L);
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(counts(result, "category")).containsOnly(Map.entry("Dairy", 2), Map.entry("Snacks", 2));
+        assertThat(counts(result, "brand")).containsOnly(Map.entry("Emmi", 1), Map.entry("Coop", 1));
+        assertThat(result.getFacets().get("price")).extracting(ProductFacetCount::getValue, ProductFacetCount::getCount)
+            .containsExactly(
+                tuple("0-5", 1),
+                tuple("5-10", 1),
+                tuple("10-", 0));
+    }
+
+    @Test
+    void matchesAnyValueOfAFacetAndAllFacets() {
+        index.index(1L, "Dairy", "Emmi", new BigDecimal("1.20"));
+        index.index(2L, "Dairy", "Coop", new BigDecimal("7.50"));
+        index.index(3L, "Snacks", "Coop", new BigDecimal("3.90"));
+
+        ProductFacetIndex.Result result = index.filter(Map.of(
+            ProductFacetIndex.Facet.BRAND, Set.of("Emmi", "Coop"),
+            ProductFacetIndex.Facet.PRICE, Set.of("0-5")), 0, 10, 10);
+
+        assertThat(result.getProductIds()).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void updatesMoveTheProductToItsNewValues() {
+        index.index(1L, "Dairy", "Emmi", new BigDecimal("1.20"));
+        index.index(1L, "Snacks", null, new BigDecimal("5"));
+        index.index(2L, "Dairy", "Emmi", null);
+        index.remove(2L);
+
+        ProductFacetIndex.Result result = index.filter(Map.of(), 0, 10, 10);
+
+        assertThat(result.getProductIds()).containsExactly(1L);
+        assertThat(counts(result, "category")).containsOnly(Map.entry("Snacks", 1));
+        assertThat(counts(result, "brand")).isEmpty();
+        assertThat(counts(result, "price")).containsEntry("5-10", 1);
+    }
+
+    @Test
+    void pagesThroughTheMatches() {
+        for (long id = 1; id <= 5; id++) {
+            index.index(id, "Dairy", null, null);
+        }
+
+        ProductFacetIndex.Result first = index.filter(Map.of(), 0, 2, 10);
+        ProductFacetIndex.Result last = index.filter(Map.of(), 4, 2, 10);
+
+        assertThat(first.getProductIds()).containsExactly(1L, 2L);
+        assertThat(first.getNextFrom()).isEqualTo(2);
+        assertThat(last.getProductIds()).containsExactly(5L);
+        assertThat(last.getNextFrom()).isEqualTo(-1);
+    }
+
+    @Test
+    void keepsTheMostFrequentAndTheSelectedValues() {
+        index.index(1L, null, "Coop", null);
+        index.index(2L, null, "Coop", null);
+        index.index(3L, null, "Emmi", null);
+        index.index(4L, null, "Hero", null);
+
+        ProductFacetIndex.Result result = index.filter(
+            Map.of(ProductFacetIndex.Facet.BRAND, Set.of("Hero")), 0, 10, 1);
+
+        assertThat(result.getFacets().get("brand")).extracting(ProductFacetCount::getValue)
+            .containsExactly("Coop", "Hero");
+    }
+
+    private static Map<String, Integer> counts(ProductFacetIndex.Result result, String facet) {
+        Map<String, Integer> counts = new HashMap<>();
+        result.getFacets().get(facet).stream()
+            .filter(count -> count.getCount() > 0)
+            .forEach(count -> counts.put(count.getValue(), count.getCount()));
+        return counts;
+    }
+}
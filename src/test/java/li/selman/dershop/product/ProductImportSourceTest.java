@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductImportSourceTest {
+
+    @Test
+    void readsCsvWithHeader() throws IOException {
+        List<String> names = readAll(ProductImportSource.csv(utf8("id;name\n1;Apple\n\n2;\"Crème; Brûlée\"\n3;\n")));
+
+        assertThat(names).containsExactly("Apple", "Crème; Brûlée", "");
+    }
+
+    @Test
+    void takesTheLastColumnWithoutHeader() throws IOException {
+        List<String> names = readAll(ProductImportSource.csv(utf8("1;Apple\nBanana\n")));
+
+        assertThat(names).containsExactly("Apple", "Banana");
+    }
+
+    @Test
+    void readsNdjson() throws IOException {
+        String ndjson = "{\"id\":1,\"name\":\"Apple\"}\n{\"id\":2}\n{\"name\":\"Banana\"}";
+
+        List<String> names = readAll(ProductImportSource.ndjson(utf8(ndjson), new ObjectMapper()));
+
+        assertThat(names).containsExactly("Apple", "", "Banana");
+    }
+
+    @Test
+    void readsTheOtherFieldsOfCsv() throws IOException {
+        try (ProductImportSource source = ProductImportSource.csv(utf8("brand;name;id;price\nAcme;Apple;1;1.50\n"))) {
+            ProductImportSource.Row row = source.next();
+
+            assertThat(row.getName()).isEqualTo("Apple");
+            assertThat(row.getPrice()).isEqualTo("1.50");
+            assertThat(row.getCategory()).isNull();
+            assertThat(row.getBrand()).isEqualTo("Acme");
+        }
+    }
+
+    @Test
+    void readsTheOtherFieldsOfNdjson() throws IOException {
+        String ndjson = "{\"name\":\"Apple\",\"price\":1.50,\"category\":\"Fruit\",\"brand\":\"Acme\"}";
+
+        try (ProductImportSource source = ProductImportSource.ndjson(utf8(ndjson), new ObjectMapper())) {
+            ProductImportSource.Row row = source.next();
+
+            assertThat(new BigDecimal(row.getPrice())).isEqualByComparingTo("1.5");
+            assertThat(row.getCategory()).isEqualTo("Fruit");
+            assertThat(row.getBrand()).isEqualTo("Acme");
+        }
+    }
+
+    private static InputStream utf8(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readAll(ProductImportSource source) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (source) {
+            for (ProductImportSource.Row row = source.next(); row != null; row = source.next()) {
+                names.add(row.getName());
+            }
+        }
+        return names;
+    }
+}
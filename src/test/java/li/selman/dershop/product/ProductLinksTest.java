@@ -0,0 +1,86 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.UriTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductLinksTest {
+
+    private final ProductLinks productLinks = new ProductLinks(new ProductProperties());
+
+    @BeforeEach
+    void before() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.setServerName("shop.example.com");
+        request.setServerPort(8443);
+        request.setScheme("https");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void after() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void rendersTheSameLinksAsTheWebMvcLinkBuilder() {
+        ProductLinks.RequestLinks links = productLinks.forCurrentRequest();
+
+        // The optional request parameters of findById are rendered as template variables, expand them away
+        Link self = linkTo(methodOn(ProductController.class).findById(42L, null, null, null)).withSelfRel().expand();
+        assertThat(links.self(42L).getHref()).isEqualTo(self.getHref());
+        assertThat(links.self(42L).getRel()).isEqualTo(self.getRel());
+
+        Link products = linkTo(ProductController.class).withRel("products");
+        assertThat(links.products().getHref()).isEqualTo(products.getHref());
+        assertThat(links.products().getRel()).isEqualTo(products.getRel());
+    }
+
+    @Test
+    void rendersTheSameImageLinkAsTheUriTemplate() {
+        UriTemplate template = UriTemplate.of("http://www-dershop-com.cloudinary.com/product-image/{id}");
+
+        assertThat(productLinks.image(42L))
+            .isEqualTo(Link.of(template.expand(Map.of("id", "42")).toString(), ProductResourceProcessor.IMAGE_REL));
+    }
+
+    @Test
+    void usesTheConfiguredImageBaseUrl() {
+        ProductProperties properties = new ProductProperties();
+        properties.setImageBaseUrl("https://cdn.example.com/images/");
+
+        assertThat(new ProductLinks(properties).image(7L).getHref())
+            .isEqualTo("https://cdn.example.com/images/7");
+        assertThat(productLinks.forCurrentRequest().self(7L).getRel())
+            .isEqualTo(IanaLinkRelations.SELF);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductLookupTest {
+
+    private final ProductRepository productRepo = mock(ProductRepository.class);
+    private final ProductLookup lookup = new ProductLookup(productRepo, mock(ProductSnapshotService.class),
+        new ConcurrentMapCacheManager(ProductRepository.BY_ID_CACHE), new ProductProperties(),
+        new SimpleMeterRegistry());
+
+    @Test
+    void handsOutCopiesOfTheCachedProduct() {
+        when(productRepo.findById(1L)).thenAnswer(invocation -> Optional.of(new Product(1L, "Apple")));
+
+        Product first = lookup.findById(1L).orElseThrow();
+        // e.g. Spring Data REST merging an update which then fails to save
+        ReflectionTestUtils.setField(first, "name", "Banana");
+
+        assertThat(lookup.findById(1L)).map(Product::getName).hasValue("Apple");
+        verify(productRepo, times(1)).findById(1L);
+    }
+
+    @Test
+    void cachesCopiesOfTheBatchLookups() {
+        Product apple = new Product(1L, "Apple");
+        when(productRepo.findAllById(List.of(1L))).thenReturn(List.of(apple));
+
+        lookup.findAllById(List.of(1L));
+        ReflectionTestUtils.setField(apple, "name", "Banana");
+
+        assertThat(lookup.findById(1L)).map(Product::getName).hasValue("Apple");
+    }
+}
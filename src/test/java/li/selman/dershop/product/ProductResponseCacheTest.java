@@ -0,0 +1,216 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductResponseCacheTest {
+
+    private static final String BODY = "{\"_embedded\":{\"products\":[" + "{\"name\":\"Apple Juice\"},".repeat(100)
+        + "{\"name\":\"Orange Juice\"}]}}";
+
+    private final CatalogVersionTracker catalogVersion = mock(CatalogVersionTracker.class);
+    private final AtomicInteger rendered = new AtomicInteger();
+    private ProductResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductResponseCache(catalogVersion, new ProductProperties(), new SimpleMeterRegistry());
+        catalogVersion(1);
+    }
+
+    @Test
+    void servesTheSameResponseFromTheCache() throws Exception {
+        MockHttpServletResponse first = get(listing("size", "20"));
+        MockHttpServletResponse second = get(listing("size", "20"));
+
+        assertThat(rendered).hasValue(1);
+        assertThat(second.getStatus()).isEqualTo(200);
+        assertThat(second.getContentType()).isEqualTo("application/hal+json");
+        assertThat(second.getHeader("X-Total-Count")).isEqualTo("101");
+        assertThat(second.getContentAsString()).isEqualTo(BODY).isEqualTo(first.getContentAsString());
+        assertThat(second.getContentLength()).isEqualTo(BODY.getBytes(UTF_8).length);
+    }
+
+    @Test
+    void servesTheCompressedVariantToClientsAcceptingGzip() throws Exception {
+        MockHttpServletRequest request = listing("size", "20");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8");
+
+        get(listing("size", "20"));
+        MockHttpServletResponse response = get(request);
+
+        assertThat(rendered).hasValue(1);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    void missesOnOtherParametersRepresentationsAndCatalogVersions() throws Exception {
+        get(listing("size", "20"));
+        get(listing("size", "10"));
+        MockHttpServletRequest cbor = listing("size", "20");
+        cbor.addHeader(HttpHeaders.ACCEPT, "application/cbor");
+        get(cbor);
+        catalogVersion(2);
+        get(listing("size", "20"));
+
+        assertThat(rendered).hasValue(4);
+    }
+
+    @Test
+    void ignoresTheOrderOfTheParameters() throws Exception {
+        get(listing("size", "20", "total", "exact"));
+        get(listing("total", "exact", "size", "20"));
+
+        assertThat(rendered).hasValue(1);
+    }
+
+    @Test
+    void answersConditionalRequestsOnAHit() throws Exception {
+        get(listing("size", "20"));
+        MockHttpServletRequest conditional = listing("size", "20");
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, "\"c1\"");
+
+        MockHttpServletResponse response = get(conditional);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void clearsOnProductChanges() throws Exception {
+        get(listing("size", "20"));
+        cache.onProductChanged(ProductChangedEvent.saved(new Product(1L, "Apple Juice")));
+        get(listing("size", "20"));
+
+        assertThat(rendered).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheFailuresOrOtherResources() throws Exception {
+        get(listing("size", "-"));
+        get(listing("size", "-"));
+        MockHttpServletRequest single = new MockHttpServletRequest("GET", "/api/products/1");
+        get(single);
+        get(single);
+
+        assertThat(rendered).hasValue(4);
+    }
+
+    @Test
+    void cachesResponsesCompletedAsynchronously() throws Exception {
+        MockHttpServletRequest request = listing("size", "20");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<ServletResponse> asyncResponse = new AtomicReference<>();
+        cache.doFilter(request, response, (req, res) -> {
+            req.startAsync(req, res);
+            asyncResponse.set(res);
+        });
+        assertThat(response.getContentLength()).isZero();
+
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        cache.doFilter(request, asyncResponse.get(), new MockFilterChain(new ListingServlet()));
+        MockHttpServletResponse cached = get(listing("size", "20"));
+
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+        assertThat(cached.getContentAsString()).isEqualTo(BODY);
+        assertThat(rendered).hasValue(1);
+    }
+
+    @Test
+    void parsesAcceptEncoding() {
+        assertThat(ProductResponseCache.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(ProductResponseCache.acceptsGzip("GZIP;q=0.5")).isTrue();
+        assertThat(ProductResponseCache.acceptsGzip("*")).isTrue();
+        assertThat(ProductResponseCache.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ProductResponseCache.acceptsGzip("gzip;q=0.000, identity")).isFalse();
+        assertThat(ProductResponseCache.acceptsGzip("deflate")).isFalse();
+        assertThat(ProductResponseCache.acceptsGzip(null)).isFalse();
+    }
+
+    private void catalogVersion(long seq) {
+        when(catalogVersion.current()).thenReturn(new CatalogVersion(seq, Instant.ofEpochMilli(1000)));
+    }
+
+    private static MockHttpServletRequest listing(String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", ProductController.PATH);
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cache.doFilter(request, response, new MockFilterChain(new ListingServlet()));
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+
+    /**
+     * Stands in for the controller, rejects a non-numeric size.
+     */
+    private final class ListingServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            rendered.incrementAndGet();
+            String size = request.getParameter("size");
+            if (size != null && !size.matches("\\d+")) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            response.setContentType("application/hal+json");
+            response.setHeader("X-Total-Count", "101");
+            response.getOutputStream().write(BODY.getBytes(UTF_8));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(16);
+
+    @Test
+    void ranksRarerTermsHigher() {
+        index.index(1L, "Apple Juice");
+        index.index(2L, "Orange Juice");
+        index.index(3L, "Apple Pie");
+        index.index(4L, "Grape Juice");
+
+        List<ProductSearchHit> hits = index.search("pie juice", 10);
+
+        assertThat(hits).extracting(ProductSearchHit::getId).hasSize(4).startsWith(3L);
+    }
+
+    @Test
+    void matchesIgnoringCaseAndAccents() {
+        index.index(1L, "Crème Brûlée");
+
+        assertThat(index.search("CREME brulee", 10)).extracting(ProductSearchHit::getId).containsExactly(1L);
+    }
+
+    @Test
+    void reindexingReplacesTheOldName() {
+        index.index(1L, "Apple");
+        index.index(1L, "Banana");
+
+        assertThat(index.search("apple", 10)).isEmpty();
+        assertThat(index.search("banana", 10)).extracting(ProductSearchHit::getName).containsExactly("Banana");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void reindexingTheSameNameKeepsTheDocument() {
+        index.index(1L, "Apple");
+        index.index(1L, "Apple");
+
+        assertThat(index.documentCount()).isEqualTo(1);
+    }
+
+    @Test
+    void compactsTheDocumentsReplacedByUpdates() {
+        for (int round = 0; round < 10; round++) {
+            for (long id = 1; id <= 1000; id++) {
+                index.index(id, "Pizza " + round);
+            }
+        }
+
+        assertThat(index.search("pizza", 5000)).hasSize(1000);
+        assertThat(index.documentCount()).isLessThan(3000);
+    }
+
+    @Test
+    void removedProductsAreNotFound() {
+        for (long id = 1; id <= 3000; id++) {
+            index.index(id, "Pizza " + id);
+        }
+        for (long id = 1; id <= 2000; id++) {
+            index.remove(id);
+        }
+
+        List<ProductSearchHit> hits = index.search("pizza", 5000);
+
+        assertThat(hits).hasSize(1000).allMatch(hit -> hit.getId() > 2000);
+        assertThat(index.size()).isEqualTo(1000);
+    }
+
+    @Test
+    void limitsTheHits() {
+        index.index(1L, "Pizza Margherita");
+        index.index(2L, "Pizza Funghi");
+        index.index(3L, "Pizza");
+
+        assertThat(index.search("pizza", 2)).extracting(ProductSearchHit::getId).containsExactly(3L, 1L);
+    }
+}
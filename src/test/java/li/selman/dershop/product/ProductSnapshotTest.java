@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Instant modified = Instant.parse("2026-10-17T12:34:56.123456Z");
+        Product juice = new Product(3L, "Apple Juice", new BigDecimal("2.49"), "Drinks", "Säftli", 7, modified);
+        Product unnamed = new Product(10L, null, null, null, null, 0, modified);
+        Path file = directory.resolve("products.snapshot");
+
+        int written = ProductSnapshot.write(file, 42L, List.of(juice, unnamed).iterator());
+        ProductSnapshot snapshot = ProductSnapshot.open(file);
+
+        assertThat(written).isEqualTo(2);
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.getChangeSeq()).isEqualTo(42L);
+        assertThat(snapshot.find(3L)).hasValueSatisfying(product -> {
+            assertThat(product).usingRecursiveComparison().isEqualTo(juice);
+            assertThat(product.getPrice()).isEqualTo("2.49");
+        });
+        assertThat(snapshot.find(10L)).hasValueSatisfying(product ->
+            assertThat(product).usingRecursiveComparison().isEqualTo(unnamed));
+        assertThat(snapshot.find(1L)).isEmpty();
+        assertThat(snapshot.find(5L)).isEmpty();
+        assertThat(snapshot.find(11L)).isEmpty();
+    }
+
+    @Test
+    void findsEveryProductOfALargeSnapshot() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            products.add(new Product(id * 2, "Product " + id));
+        }
+        Path file = directory.resolve("products.snapshot");
+        ProductSnapshot.write(file, 0L, products.iterator());
+
+        ProductSnapshot snapshot = ProductSnapshot.open(file);
+
+        for (long id = 1; id <= 10_001; id++) {
+            assertThat(snapshot.find(id).map(Product::getName))
+                .isEqualTo(id % 2 == 0 && id <= 10_000 ? Optional.of("Product " + id / 2)
+                    : Optional.empty());
+        }
+    }
+
+    @Test
+    void emptyCatalog() throws IOException {
+        Path file = directory.resolve("products.snapshot");
+        ProductSnapshot.write(file, 0L, List.<Product>of().iterator());
+
+        ProductSnapshot snapshot = ProductSnapshot.open(file);
+
+        assertThat(snapshot.size()).isZero();
+        assertThat(snapshot.find(1L)).isEmpty();
+    }
+
+    @Test
+    void mappingSurvivesReplacingTheFile() throws IOException {
+        Path file = directory.resolve("products.snapshot");
+        ProductSnapshot.write(file, 1L, List.of(new Product(1L, "Old")).iterator());
+        ProductSnapshot old = ProductSnapshot.open(file);
+
+        Path temp = directory.resolve("products.snapshot.tmp");
+        ProductSnapshot.write(temp, 2L, List.of(new Product(1L, "New")).iterator());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertThat(old.find(1L).map(Product::getName)).hasValue("Old");
+        assertThat(ProductSnapshot.open(file).find(1L).map(Product::getName)).hasValue("New");
+    }
+
+    @Test
+    void rejectsProductsOutOfOrder() {
+        Path file = directory.resolve("products.snapshot");
+        List<Product> products = List.of(new Product(2L, "Two"), new Product(1L, "One"));
+
+        assertThatThrownBy(() -> ProductSnapshot.write(file, 0L, products.iterator()))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = Files.write(directory.resolve("products.snapshot"), new byte[64]);
+
+        assertThatThrownBy(() -> ProductSnapshot.open(file)).isInstanceOf(IOException.class);
+    }
+}
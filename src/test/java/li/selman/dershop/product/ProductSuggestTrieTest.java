@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductSuggestTrieTest {
+
+    private final ProductSuggestTrie trie = ProductSuggestTrie.build(Arrays.asList(
+        "Apple", "Apple Pie", "Apple Juice", "Apricot", "Banana", "Bananenbrot", "Crème Brûlée", "apple"
+    ), 3);
+
+    @Test
+    void suggestsShorterNamesFirst() {
+        assertThat(trie.suggest("ap", 10)).containsExactly("Apple", "Apricot", "Apple Pie");
+    }
+
+    @Test
+    void matchesInsideAnEdgeLabel() {
+        assertThat(trie.suggest("banan", 10)).containsExactly("Banana", "Bananenbrot");
+        assertThat(trie.suggest("banane", 10)).containsExactly("Bananenbrot");
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertThat(trie.suggest("CREME b", 10)).containsExactly("Crème Brûlée");
+    }
+
+    @Test
+    void collapsesNamesEqualAfterNormalization() {
+        assertThat(trie.suggest("apple", 10)).containsExactly("Apple", "Apple Pie", "Apple Juice");
+        assertThat(trie.size()).isEqualTo(7);
+    }
+
+    @Test
+    void returnsNothingForUnknownPrefixes() {
+        assertThat(trie.suggest("x", 10)).isEmpty();
+        assertThat(trie.suggest("applex", 10)).isEmpty();
+        assertThat(ProductSuggestTrie.EMPTY.suggest("a", 10)).isEmpty();
+    }
+
+    @Test
+    void emptyPrefixSuggestsTheOverallBest() {
+        List<String> suggestions = trie.suggest("", 2);
+
+        assertThat(suggestions).containsExactly("Apple", "Banana");
+    }
+}
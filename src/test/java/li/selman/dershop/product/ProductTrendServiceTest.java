@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductTrendServiceTest {
+
+    private final ProductTrendRepository trendRepo = mock(ProductTrendRepository.class);
+    private final ProductTrendService trends = new ProductTrendService(trendRepo, properties());
+
+    private static TrendingProperties properties() {
+        TrendingProperties properties = new TrendingProperties();
+        properties.setNodeId("node-1");
+        return properties;
+    }
+
+    @Test
+    void savesNothingBeforeTheSnapshotIsRestored() {
+        trends.synchronize();
+        trends.shutdown();
+
+        verify(trendRepo, never()).save(any(), any(), any());
+    }
+
+    @Test
+    void savesAfterTheSnapshotIsRestored() {
+        trends.restore();
+
+        InOrder inOrder = inOrder(trendRepo);
+        inOrder.verify(trendRepo).findOwn(eq("node-1"), any());
+        inOrder.verify(trendRepo).save(eq("node-1"), any(), any());
+    }
+}
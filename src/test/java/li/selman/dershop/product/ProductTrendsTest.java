@@ -0,0 +1,98 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class ProductTrendsTest {
+
+    private static final long BUCKET = 60_000;
+    private static final long START = 1_000 * BUCKET;
+
+    @Test
+    void olderViewsWeighLess() {
+        ProductTrends trends = newTrends(16);
+        record(trends, 1L, 10, START);
+        record(trends, 2L, 6, START + BUCKET);
+
+        List<ProductTrends.Trend> top = trends.top(10, START + BUCKET, newTrends(16));
+
+        assertThat(top).extracting(ProductTrends.Trend::getProductId).containsExactly(2L, 1L);
+        assertThat(top).extracting(ProductTrends.Trend::getScore).containsExactly(6.0, 5.0);
+    }
+
+    @Test
+    void viewsLeaveTheWindow() {
+        ProductTrends trends = newTrends(16);
+        record(trends, 1L, 10, START);
+        record(trends, 2L, 1, START + 4 * BUCKET);
+
+        assertThat(trends.top(10, START + 4 * BUCKET, newTrends(16)))
+            .extracting(ProductTrends.Trend::getProductId).containsExactly(2L);
+    }
+
+    @Test
+    void keepsTheHeavyHittersAmongManyProducts() {
+        ProductTrends trends = newTrends(4);
+        for (long id = 100; id < 1_100; id++) {
+            record(trends, 1L, 3, START);
+            record(trends, id, 1, START);
+        }
+
+        assertThat(trends.top(1, START, newTrends(4)))
+            .extracting(ProductTrends.Trend::getProductId).containsExactly(1L);
+    }
+
+    @Test
+    void snapshotsOfOtherInstancesAreMerged() {
+        ProductTrends first = newTrends(16);
+        ProductTrends second = newTrends(16);
+        record(first, 1L, 2, START);
+        record(second, 1L, 3, START);
+        record(second, 2L, 4, START);
+
+        ProductTrends others = newTrends(16);
+        assertThat(others.merge(second.snapshot(), START)).isTrue();
+        List<ProductTrends.Trend> top = first.top(10, START, others);
+
+        assertThat(top).extracting(ProductTrends.Trend::getProductId).containsExactly(1L, 2L);
+        assertThat(top.get(0).getScore()).isEqualTo(5.0);
+    }
+
+    @Test
+    void ignoresSnapshotsOfOtherDimensions() {
+        ProductTrends trends = newTrends(16);
+        ProductTrends wider = new ProductTrends(2, 2048, BUCKET, 3, 0.5, 16);
+
+        assertThat(trends.merge(wider.snapshot(), START)).isFalse();
+    }
+
+    private static ProductTrends newTrends(int capacity) {
+        return new ProductTrends(2, 1024, BUCKET, 3, 0.5, capacity);
+    }
+
+    private static void record(ProductTrends trends, long productId, int views, long nowMillis) {
+        for (int i = 0; i < views; i++) {
+            trends.record(productId, nowMillis);
+        }
+    }
+}
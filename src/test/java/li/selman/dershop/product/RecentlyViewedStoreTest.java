@@ -0,0 +1,69 @@
+/*
+ * (c) Copyright 2021 Hasan Selman Kara. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package li.selman.dershop.product;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Hasan Selman Kara
+ */
+class RecentlyViewedStoreTest {
+
+    private final RecentlyViewedStore store = new RecentlyViewedStore(4, 3, login -> {
+        switch (login) {
+            case "alice":
+                return new long[] {2L, 1L};
+            case "carol":
+                return new long[] {4L, 3L, 2L, 1L};
+            default:
+                return new long[0];
+        }
+    }, () -> 0L);
+
+    @Test
+    void continuesTheStoredStrip() {
+        store.record("alice", 3L);
+
+        assertThat(store.read("alice")).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void dropsTheOldestStoredProductsBeyondTheCapacity() {
+        assertThat(store.read("carol")).containsExactly(4L, 3L, 2L);
+    }
+
+    @Test
+    void movesAViewedProductToTheFront() {
+        store.record("bob", 1L);
+        store.record("bob", 2L);
+        store.record("bob", 3L);
+        store.record("bob", 1L);
+
+        assertThat(store.read("bob")).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void dropsTheOldestProductWhenFull() {
+        for (long id = 1; id <= 5; id++) {
+            store.record("bob", id);
+        }
+        store.record("bob", 4L);
+
+        assertThat(store.read("bob")).containsExactly(4L, 5L, 3L);
+    }
+}